@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories(basePackages = "com.dms.repository.jpa")
 @EnableMongoRepositories(basePackages = "com.dms.repository.mongo")
+@EnableScheduling
 public class DocumentManagementApplication {
 
     public static void main(String[] args) {
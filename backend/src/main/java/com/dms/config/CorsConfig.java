@@ -21,7 +21,7 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
                 .allowCredentials(true)
-                .exposedHeaders("Authorization", "Content-Type", "X-Requested-With")
+                .exposedHeaders("Authorization", "Content-Type", "X-Requested-With", "Content-Disposition", "Content-Range", "Accept-Ranges", "ETag")
                 .maxAge(3600);
     }
 
@@ -42,7 +42,7 @@ public class CorsConfig implements WebMvcConfigurer {
         configuration.setAllowCredentials(true);
         
         // Expose headers
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Content-Disposition", "Content-Range", "Accept-Ranges", "ETag"));
         
         // Set max age
         configuration.setMaxAge(3600L);
@@ -1,11 +1,17 @@
 package com.dms.config;
 
+import com.dms.security.BoundedPasswordEncoder;
 import com.dms.security.JwtAuthenticationFilter;
-import com.dms.security.JwtTokenUtil;
+import com.dms.security.PasswordHashingExecutor;
+import com.dms.security.PrincipalCache;
+import com.dms.security.TokenVerifier;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -16,6 +22,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfigurationSource;
 
@@ -25,7 +32,13 @@ import org.springframework.web.cors.CorsConfigurationSource;
 public class SecurityConfig {
 
     @Autowired
-    private JwtTokenUtil jwtTokenUtil;
+    private TokenVerifier tokenVerifier;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
 
     @Autowired
     private ApplicationContext applicationContext;
@@ -36,7 +49,7 @@ public class SecurityConfig {
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
         UserDetailsService userDetailsService = applicationContext.getBean(UserDetailsService.class);
-        return new JwtAuthenticationFilter(jwtTokenUtil, userDetailsService);
+        return new JwtAuthenticationFilter(tokenVerifier, principalCache, userDetailsService);
     }
 
     @Bean
@@ -45,11 +58,17 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource))
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            // 401 rather than 403 for a missing or expired token, so clients know to refresh it
+            .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
             .authorizeHttpRequests(auth -> auth
+                // Streamed downloads and SSE complete on an async dispatch that was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/documents/public/**").permitAll()
+                // Thumbnails are also loaded by <img> through signed URLs; the controller checks them
+                .requestMatchers(HttpMethod.GET, "/api/documents/*/thumbnail").permitAll()
                 .requestMatchers("/error").permitAll()
                 .anyRequest().authenticated()
             )
@@ -65,6 +84,6 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), passwordHashingExecutor);
     }
 } 
\ No newline at end of file
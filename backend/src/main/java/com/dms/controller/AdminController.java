@@ -0,0 +1,24 @@
+package com.dms.controller;
+
+import com.dms.security.PasswordHashingExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    /**
+     * Hash time, queue wait and queue depth of the password hashing pool.
+     */
+    @GetMapping("/metrics/password-hashing")
+    public ResponseEntity<PasswordHashingExecutor.Stats> getPasswordHashingStats() {
+        return ResponseEntity.ok(passwordHashingExecutor.stats());
+    }
+}
@@ -2,12 +2,19 @@ package com.dms.controller;
 
 import com.dms.dto.AuthResponse;
 import com.dms.dto.LoginRequest;
+import com.dms.dto.RefreshTokenRequest;
 import com.dms.dto.UserRegistrationRequest;
 import com.dms.entity.User;
 import com.dms.security.JwtTokenUtil;
+import com.dms.security.PasswordHashingRejectedException;
+import com.dms.security.TokenRevocationList;
+import com.dms.security.TokenVerifier;
+import com.dms.service.RefreshTokenService;
 import com.dms.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -15,6 +22,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -28,6 +39,15 @@ public class AuthController {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private TokenVerifier tokenVerifier;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody UserRegistrationRequest registrationRequest) {
         try {
@@ -50,18 +70,9 @@ public class AuthController {
 
             User savedUser = userService.createUser(user);
 
-            // Generate JWT token
-            String token = jwtTokenUtil.generateToken(savedUser, savedUser.getId());
-
-            AuthResponse authResponse = new AuthResponse(
-                    token,
-                    savedUser.getId(),
-                    savedUser.getUsername(),
-                    savedUser.getEmail(),
-                    savedUser.getRole().name()
-            );
-
-            return ResponseEntity.ok(authResponse);
+            return ResponseEntity.ok(issueTokens(savedUser, refreshTokenService.issue(savedUser.getId())));
+        } catch (PasswordHashingRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Registration failed: " + e.getMessage());
         }
@@ -81,42 +92,66 @@ public class AuthController {
                 return ResponseEntity.badRequest().body("User not found");
             }
 
-            String token = jwtTokenUtil.generateToken(userDetails, user.getId());
-
-            AuthResponse authResponse = new AuthResponse(
-                    token,
-                    user.getId(),
-                    user.getUsername(),
-                    user.getEmail(),
-                    user.getRole().name()
-            );
-
-            return ResponseEntity.ok(authResponse);
+            return ResponseEntity.ok(issueTokens(user, refreshTokenService.issue(user.getId())));
+        } catch (PasswordHashingRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Invalid username or password");
         }
     }
 
+    /**
+     * Exchanges a refresh token for a new access token. The refresh token is rotated, so the
+     * one returned replaces the one sent.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+            return ResponseEntity.ok(issueTokens(rotation.user(), rotation.refreshToken()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ends a session: the refresh token is revoked, and so is the access token it was sent with.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody(required = false) RefreshTokenRequest request,
+                                    @RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (request != null && request.getRefreshToken() != null) {
+            refreshTokenService.revoke(request.getRefreshToken());
+        }
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            try {
+                TokenVerifier.VerifiedToken token = tokenVerifier.verify(authorization.substring(7));
+                tokenRevocationList.revoke(token.tokenId(), token.userId(), LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(token.expiresAtMillis()), ZoneId.systemDefault()));
+            } catch (Exception e) {
+                // Already invalid, nothing to revoke
+            }
+        }
+        return ResponseEntity.ok("Logged out");
+    }
+
     @GetMapping("/validate")
     public ResponseEntity<?> validateToken(@RequestHeader("Authorization") String token) {
         try {
             if (token != null && token.startsWith("Bearer ")) {
                 String jwt = token.substring(7);
-                String username = jwtTokenUtil.extractUsername(jwt);
-                UserDetails userDetails = userService.loadUserByUsername(username);
-                
-                if (jwtTokenUtil.validateToken(jwt, userDetails)) {
-                    User user = userService.findByUsername(username).orElse(null);
-                    if (user != null) {
-                        AuthResponse authResponse = new AuthResponse(
-                                jwt,
-                                user.getId(),
-                                user.getUsername(),
-                                user.getEmail(),
-                                user.getRole().name()
-                        );
-                        return ResponseEntity.ok(authResponse);
-                    }
+                // Throws for a bad signature or an expired token
+                String username = tokenVerifier.verify(jwt).username();
+                User user = userService.findByUsername(username).orElse(null);
+                if (user != null) {
+                    AuthResponse authResponse = new AuthResponse(
+                            jwt,
+                            user.getId(),
+                            user.getUsername(),
+                            user.getEmail(),
+                            user.getRole().name()
+                    );
+                    return ResponseEntity.ok(authResponse);
                 }
             }
             return ResponseEntity.badRequest().body("Invalid token");
@@ -124,4 +159,23 @@ public class AuthController {
             return ResponseEntity.badRequest().body("Token validation failed");
         }
     }
-} 
\ No newline at end of file
+
+    private ResponseEntity<?> tooManyRequests(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    private AuthResponse issueTokens(User user, String refreshToken) {
+        AuthResponse authResponse = new AuthResponse(
+                jwtTokenUtil.generateToken(user, user.getId()),
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getRole().name()
+        );
+        authResponse.setRefreshToken(refreshToken);
+        authResponse.setExpiresIn(jwtTokenUtil.getExpiration() / 1000);
+        return authResponse;
+    }
+}
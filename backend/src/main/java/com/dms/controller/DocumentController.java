@@ -1,27 +1,48 @@
 package com.dms.controller;
 
+import com.dms.dto.ArchiveRequest;
 import com.dms.dto.DocumentResponse;
+import com.dms.dto.DocumentSummary;
+import com.dms.dto.DocumentVersionResponse;
 import com.dms.entity.Document;
+import com.dms.entity.DocumentVersion;
+import com.dms.entity.ThumbnailStatus;
+import com.dms.repository.mongo.MongoIndexManager;
 import com.dms.security.JwtTokenUtil;
+import com.dms.security.ThumbnailUrlSigner;
+import com.dms.service.BulkUploadService;
+import com.dms.service.DocumentArchiveService;
 import com.dms.service.DocumentService;
+import com.dms.service.storage.RangeStreamingResponse;
+import com.dms.service.thumbnail.ThumbnailService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.Base64;
 
@@ -35,6 +56,21 @@ public class DocumentController {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ThumbnailUrlSigner thumbnailUrlSigner;
+
+    @Autowired
+    private BulkUploadService bulkUploadService;
+
+    @Autowired
+    private DocumentArchiveService documentArchiveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof com.dms.entity.User) {
@@ -71,6 +107,46 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Uploads many files, or ZIP archives of them, in one request. The response is a stream of
+     * newline-delimited JSON with one result per file, written as each file finishes.
+     */
+    @PostMapping("/bulk-upload")
+    public ResponseEntity<?> bulkUpload(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "expandArchives", defaultValue = "true") boolean expandArchives,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "tags", required = false) List<String> tags,
+            @RequestParam(value = "isPublic", defaultValue = "false") boolean isPublic,
+            @RequestParam(value = "allowedUsers", required = false) List<Long> allowedUsers) {
+        try {
+            Long userId = getCurrentUserId();
+
+            StreamingResponseBody body = out -> {
+                // A client that stops reading doesn't abort the upload; the remaining files are still stored
+                AtomicBoolean clientGone = new AtomicBoolean();
+                bulkUploadService.upload(files, expandArchives, userId,
+                        description, tags, isPublic, allowedUsers, result -> {
+                            if (clientGone.get()) {
+                                return;
+                            }
+                            try {
+                                out.write(objectMapper.writeValueAsBytes(result));
+                                out.write('\n');
+                                out.flush();
+                            } catch (IOException e) {
+                                clientGone.set(true);
+                            }
+                        });
+            };
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(body);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Bulk upload failed: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{documentId}")
     public ResponseEntity<?> getDocument(@PathVariable String documentId) {
         try {
@@ -89,28 +165,31 @@ public class DocumentController {
     }
 
     @GetMapping("/download/{documentId}")
-    public ResponseEntity<?> downloadDocument(@PathVariable String documentId) {
+    public ResponseEntity<?> downloadDocument(@PathVariable String documentId, @RequestHeader HttpHeaders requestHeaders) {
         try {
             Long userId = getCurrentUserId();
             
             Optional<Document> documentOpt = documentService.getDocumentByIdForUser(documentId, userId);
             if (documentOpt.isPresent()) {
                 Document document = documentOpt.get();
-                
-                // Increment download count
-                documentService.incrementDownloadCount(documentId);
-                
-                // Decode base64 content
-                if (document.getFileContent() != null && !document.getFileContent().isEmpty()) {
-                    byte[] fileBytes = Base64.getDecoder().decode(document.getFileContent());
-                    
-                    return ResponseEntity.ok()
-                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + document.getOriginalFilename() + "\"")
-                            .contentType(MediaType.parseMediaType(document.getContentType()))
-                            .body(fileBytes);
-                } else {
+                if (!documentService.hasContent(document)) {
                     return ResponseEntity.notFound().build();
                 }
+
+                String etag = document.getChecksum() != null ? "\"" + document.getChecksum() + "\"" : null;
+                ResponseEntity<StreamingResponseBody> response = RangeStreamingResponse.build(
+                        requestHeaders,
+                        document.getFileSize(),
+                        document.getContentType(),
+                        document.getOriginalFilename(),
+                        etag,
+                        (position, count, out) -> documentService.writeContent(document, position, count, out));
+
+                // Count a download once per transfer, not once per resumed range
+                if (isInitialTransfer(response)) {
+                    documentService.incrementDownloadCount(documentId);
+                }
+                return response;
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -119,6 +198,25 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Streams the selected documents as one ZIP; nothing is buffered, whatever its size.
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<?> downloadArchive(@RequestBody ArchiveRequest request) {
+        try {
+            Long userId = getCurrentUserId();
+
+            List<Document> documents = documentArchiveService.resolve(request.getDocumentIds(), request.getQuery(), userId);
+            StreamingResponseBody body = out -> documentArchiveService.write(documents, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"documents.zip\"")
+                    .body(body);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error creating archive: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{documentId}/content")
     public ResponseEntity<?> getDocumentContent(@PathVariable String documentId) {
         try {
@@ -128,13 +226,16 @@ public class DocumentController {
             if (documentOpt.isPresent()) {
                 Document document = documentOpt.get();
                 
-                if (document.getFileContent() != null && !document.getFileContent().isEmpty()) {
-                    return ResponseEntity.ok()
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .body(new DocumentContentResponse(document.getFileContent()));
-                } else {
+                String content;
+                try (InputStream in = documentService.openContent(document)) {
+                    content = Base64.getEncoder().encodeToString(in.readAllBytes());
+                } catch (FileNotFoundException e) {
                     return ResponseEntity.notFound().build();
                 }
+
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(new DocumentContentResponse(content));
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -143,21 +244,84 @@ public class DocumentController {
         }
     }
 
+    @GetMapping("/{documentId}/thumbnail")
+    public ResponseEntity<?> getThumbnail(
+            @PathVariable String documentId,
+            @RequestParam(value = "size", defaultValue = "240") int size,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "v", required = false) Integer requestedVersion,
+            @RequestParam(value = "u", required = false) Long signedUserId,
+            @RequestParam(value = "e", required = false) Long signedDay,
+            @RequestParam(value = "sig", required = false) String signature,
+            @RequestHeader HttpHeaders requestHeaders) {
+        try {
+            Long userId = thumbnailViewer(documentId, requestedVersion, signedUserId, signedDay, signature);
+            if (userId == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+
+            Optional<Document> documentOpt = documentService.getDocumentMetadataForUser(documentId, userId);
+            if (documentOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            Document document = documentOpt.get();
+
+            boolean legacy = document.getThumbnailRenditions() == null;
+            String renditionFormat = legacy ? "png" : selectThumbnailFormat(format, requestHeaders);
+            if (renditionFormat == null) {
+                return ResponseEntity.badRequest().body("Unsupported thumbnail format: " + format);
+            }
+            String key = ThumbnailService.renditionKey(renditionFormat, selectThumbnailSize(size));
+            int thumbnailVersion = document.getThumbnailVersion() != null ? document.getThumbnailVersion() : 0;
+            String etag = "\"" + documentId + "-" + thumbnailVersion + "-" + (legacy ? "legacy" : key) + "\"";
+
+            // Versioned URLs never change content; unversioned ones must revalidate
+            CacheControl cacheControl = requestedVersion != null && requestedVersion == thumbnailVersion
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                    : CacheControl.noCache().cachePrivate();
+
+            if (requestHeaders.getIfNoneMatch().contains(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(cacheControl)
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .build();
+            }
+
+            byte[] thumbnail = documentService.readThumbnail(document, key);
+            if (thumbnail == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(ThumbnailService.mediaType(renditionFormat)))
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(thumbnail);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error retrieving thumbnail: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/my-documents")
     public ResponseEntity<?> getMyDocuments(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadDate") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor) {
         
         try {
             Long userId = getCurrentUserId();
             
-            Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                    Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-            Pageable pageable = PageRequest.of(page, size, sort);
+            if (cursor != null) {
+                return ResponseEntity.ok(documentService
+                        .getUserDocuments(userId, sortBy, sortDirection(sortBy, sortDir), cursor, size)
+                        .map(this::convertToDocumentResponse));
+            }
+            Pageable pageable = PageRequest.of(page, size, buildSort(sortBy, sortDir));
             
-            Page<Document> documents = documentService.getUserDocuments(userId, pageable);
+            Page<DocumentSummary> documents = documentService.getUserDocuments(userId, pageable);
             Page<DocumentResponse> responses = documents.map(this::convertToDocumentResponse);
             
             return ResponseEntity.ok(responses);
@@ -171,14 +335,18 @@ public class DocumentController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadDate") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor) {
         
         try {
-            Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                    Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-            Pageable pageable = PageRequest.of(page, size, sort);
+            if (cursor != null) {
+                return ResponseEntity.ok(documentService
+                        .getPublicDocuments(sortBy, sortDirection(sortBy, sortDir), cursor, size)
+                        .map(this::convertToDocumentResponse));
+            }
+            Pageable pageable = PageRequest.of(page, size, buildSort(sortBy, sortDir));
             
-            Page<Document> documents = documentService.getPublicDocuments(pageable);
+            Page<DocumentSummary> documents = documentService.getPublicDocuments(pageable);
             Page<DocumentResponse> responses = documents.map(this::convertToDocumentResponse);
             
             return ResponseEntity.ok(responses);
@@ -192,16 +360,20 @@ public class DocumentController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadDate") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor) {
         
         try {
             Long userId = getCurrentUserId();
             
-            Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-                    Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-            Pageable pageable = PageRequest.of(page, size, sort);
+            if (cursor != null) {
+                return ResponseEntity.ok(documentService
+                        .getAccessibleDocuments(userId, sortBy, sortDirection(sortBy, sortDir), cursor, size)
+                        .map(this::convertToDocumentResponse));
+            }
+            Pageable pageable = PageRequest.of(page, size, buildSort(sortBy, sortDir));
             
-            Page<Document> documents = documentService.getAccessibleDocuments(userId, pageable);
+            Page<DocumentSummary> documents = documentService.getAccessibleDocuments(userId, pageable);
             Page<DocumentResponse> responses = documents.map(this::convertToDocumentResponse);
             
             return ResponseEntity.ok(responses);
@@ -214,13 +386,19 @@ public class DocumentController {
     public ResponseEntity<?> searchDocuments(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
         
         try {
             Long userId = getCurrentUserId();
             
+            if (cursor != null) {
+                return ResponseEntity.ok(documentService
+                        .searchDocuments(query, userId, cursor, size)
+                        .map(this::convertToDocumentResponse));
+            }
             Pageable pageable = PageRequest.of(page, size);
-            Page<Document> documents = documentService.searchDocuments(query, pageable);
+            Page<DocumentSummary> documents = documentService.searchDocuments(query, userId, pageable);
             
             // Convert to responses
             Page<DocumentResponse> responses = documents.map(this::convertToDocumentResponse);
@@ -237,33 +415,101 @@ public class DocumentController {
             @RequestParam(value = "description", required = false) String description,
             @RequestParam(value = "tags", required = false) List<String> tags,
             @RequestParam(value = "isPublic", required = false) Boolean isPublic,
-            @RequestParam(value = "allowedUsers", required = false) List<Long> allowedUsers) {
+            @RequestParam(value = "allowedUsers", required = false) List<Long> allowedUsers,
+            @RequestParam(value = "expectedVersion", required = false) Long expectedVersion) {
         
         try {
             Long userId = getCurrentUserId();
             
             Document updatedDocument = documentService.updateDocument(
-                    documentId, description, tags, isPublic != null ? isPublic : false, allowedUsers, userId);
+                    documentId, description, tags, isPublic, allowedUsers, userId, expectedVersion);
             
             DocumentResponse response = convertToDocumentResponse(updatedDocument);
             return ResponseEntity.ok(response);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Update failed: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Update failed: " + e.getMessage());
         }
     }
 
     @DeleteMapping("/{documentId}")
-    public ResponseEntity<?> deleteDocument(@PathVariable String documentId) {
+    public ResponseEntity<?> deleteDocument(
+            @PathVariable String documentId,
+            @RequestParam(value = "expectedVersion", required = false) Long expectedVersion) {
         try {
             Long userId = getCurrentUserId();
             
-            documentService.deleteDocument(documentId, userId);
+            documentService.deleteDocument(documentId, userId, expectedVersion);
             return ResponseEntity.ok("Document deleted successfully");
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Delete failed: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Delete failed: " + e.getMessage());
         }
     }
 
+    @PostMapping("/{documentId}/versions")
+    public ResponseEntity<?> uploadVersion(
+            @PathVariable String documentId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "comment", required = false) String comment,
+            @RequestParam(value = "expectedVersion", required = false) Long expectedVersion) {
+        try {
+            Long userId = getCurrentUserId();
+
+            Document document = documentService.uploadVersion(documentId, file, comment, userId, expectedVersion);
+            return ResponseEntity.ok(convertToDocumentResponse(document));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Upload failed: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{documentId}/versions")
+    public ResponseEntity<?> getVersions(@PathVariable String documentId) {
+        try {
+            Long userId = getCurrentUserId();
+
+            List<DocumentVersion> versions = documentService.getVersionsForUser(documentId, userId);
+            // Newest first, so the head of the chain is the current content
+            List<DocumentVersionResponse> responses = new ArrayList<>();
+            for (int i = 0; i < versions.size(); i++) {
+                responses.add(convertToVersionResponse(versions.get(i), i == 0));
+            }
+            return ResponseEntity.ok(responses);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error retrieving versions: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{documentId}/versions/{versionNumber}/download")
+    public ResponseEntity<?> downloadVersion(
+            @PathVariable String documentId,
+            @PathVariable int versionNumber,
+            @RequestHeader HttpHeaders requestHeaders) {
+        try {
+            Long userId = getCurrentUserId();
+
+            Optional<DocumentVersion> versionOpt = documentService.getVersionForUser(documentId, versionNumber, userId);
+            if (versionOpt.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            DocumentVersion version = versionOpt.get();
+            String etag = version.getChecksum() != null ? "\"" + version.getChecksum() + "\"" : null;
+            return RangeStreamingResponse.build(
+                    requestHeaders,
+                    version.getFileSize(),
+                    version.getContentType(),
+                    version.getOriginalFilename(),
+                    etag,
+                    (position, count, out) -> documentService.writeVersionContent(version, position, count, out));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error downloading version: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<?> getDocumentStats() {
         try {
@@ -278,8 +524,89 @@ public class DocumentController {
         }
     }
 
+    private Sort buildSort(String sortBy, String sortDir) {
+        return Sort.by(sortDirection(sortBy, sortDir), sortBy);
+    }
+
+    private Sort.Direction sortDirection(String sortBy, String sortDir) {
+        // Only keys backed by a listing index; anything else would sort the whole result in memory
+        if (!MongoIndexManager.isSortable(sortBy)) {
+            throw new RuntimeException("Unsupported sort field: " + sortBy + ". Allowed: " + MongoIndexManager.SORT_FIELDS.keySet());
+        }
+        return sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+
+    private boolean isInitialTransfer(ResponseEntity<?> response) {
+        if (response.getStatusCode() == HttpStatus.OK) {
+            return true;
+        }
+        String contentRange = response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE);
+        return response.getStatusCode() == HttpStatus.PARTIAL_CONTENT
+                && (contentRange == null || contentRange.startsWith("bytes 0-"));
+    }
+
+    private int selectThumbnailSize(int requested) {
+        // Smallest rendition that is at least as wide as requested, else the largest one
+        List<Integer> sizes = thumbnailService.getSizes();
+        return sizes.stream().filter(s -> s >= requested).findFirst().orElse(sizes.get(sizes.size() - 1));
+    }
+
+    private String selectThumbnailFormat(String requested, HttpHeaders requestHeaders) {
+        List<String> formats = thumbnailService.getFormats();
+        if (requested != null) {
+            String normalized = requested.equalsIgnoreCase("jpg") ? "jpeg" : requested.toLowerCase();
+            return formats.contains(normalized) ? normalized : null;
+        }
+        List<MediaType> accepted = requestHeaders.getAccept();
+        if (accepted.isEmpty()) {
+            return formats.get(0);
+        }
+        for (String candidate : formats) {
+            MediaType mediaType = MediaType.parseMediaType(ThumbnailService.mediaType(candidate));
+            if (accepted.stream().anyMatch(a -> a.includes(mediaType))) {
+                return candidate;
+            }
+        }
+        return formats.contains("png") ? "png" : formats.get(0);
+    }
+
+    /**
+     * The user a thumbnail request is for: the authenticated user, or the user a signed
+     * thumbnail URL was issued to. Null when neither is valid.
+     */
+    private Long thumbnailViewer(String documentId, Integer requestedVersion, Long signedUserId, Long signedDay, String signature) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof com.dms.entity.User user) {
+            return user.getId();
+        }
+        if (signedUserId != null && signedDay != null && signature != null && requestedVersion != null
+                && thumbnailUrlSigner.verify(signedUserId, documentId, requestedVersion, signedDay, signature)) {
+            return signedUserId;
+        }
+        return null;
+    }
+
+    /**
+     * A thumbnail URL that an {@code <img>} can load without the bearer token. It is signed for
+     * the current user and day and otherwise changes only with the thumbnail, so browsers can
+     * cache it until the next day's URL replaces it.
+     */
+    private String thumbnailUrl(String documentId, ThumbnailStatus status, Integer thumbnailVersion) {
+        if (status != ThumbnailStatus.READY) {
+            return null;
+        }
+        int version = thumbnailVersion != null ? thumbnailVersion : 0;
+        String url = "/api/documents/" + documentId + "/thumbnail?v=" + version;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof com.dms.entity.User user) {
+            long day = thumbnailUrlSigner.currentDay();
+            url += "&u=" + user.getId() + "&e=" + day + "&sig=" + thumbnailUrlSigner.sign(user.getId(), documentId, version, day);
+        }
+        return url;
+    }
+
     private DocumentResponse convertToDocumentResponse(Document document) {
-        return new DocumentResponse(
+        DocumentResponse response = new DocumentResponse(
                 document.getId(),
                 document.getFilename(),
                 document.getOriginalFilename(),
@@ -294,9 +621,64 @@ public class DocumentController {
                 document.getTags(),
                 document.getVersion(),
                 document.getLastModified(),
-                document.getDownloadCount(),
-                document.getThumbnailContent()
+                document.getDownloadCount()
         );
+        ThumbnailStatus thumbnailStatus = resolveThumbnailStatus(document.getThumbnailStatus(), document.getThumbnailContent() != null);
+        response.setThumbnailStatus(thumbnailStatus);
+        response.setThumbnailVersion(document.getThumbnailVersion());
+        response.setLockVersion(document.getLockVersion());
+        response.setThumbnailUrl(thumbnailUrl(document.getId(), thumbnailStatus, document.getThumbnailVersion()));
+        return response;
+    }
+
+    private DocumentResponse convertToDocumentResponse(DocumentSummary summary) {
+        DocumentResponse response = new DocumentResponse(
+                summary.getId(),
+                summary.getFilename(),
+                summary.getOriginalFilename(),
+                summary.getContentType(),
+                summary.getFileSize(),
+                summary.getUploadedBy(),
+                summary.getUploadedByUsername(),
+                summary.getUploadDate(),
+                summary.getIsPublic(),
+                summary.getAllowedUsers(),
+                summary.getDescription(),
+                summary.getTags(),
+                summary.getVersion(),
+                summary.getLastModified(),
+                summary.getDownloadCount()
+        );
+        // Legacy inline thumbnails are flagged READY at startup, so a missing status means none
+        ThumbnailStatus thumbnailStatus = resolveThumbnailStatus(summary.getThumbnailStatus(), false);
+        response.setThumbnailStatus(thumbnailStatus);
+        response.setThumbnailVersion(summary.getThumbnailVersion());
+        response.setLockVersion(summary.getLockVersion());
+        response.setThumbnailUrl(thumbnailUrl(summary.getId(), thumbnailStatus, summary.getThumbnailVersion()));
+        return response;
+    }
+
+    private DocumentVersionResponse convertToVersionResponse(DocumentVersion version, boolean current) {
+        return new DocumentVersionResponse(
+                version.getVersionNumber(),
+                version.getOriginalFilename(),
+                version.getContentType(),
+                version.getFileSize(),
+                version.getChecksum(),
+                version.getUploadedBy(),
+                version.getUploadedByUsername(),
+                version.getUploadedAt(),
+                version.getComment(),
+                current
+        );
+    }
+
+    private ThumbnailStatus resolveThumbnailStatus(ThumbnailStatus status, boolean hasLegacyThumbnail) {
+        // Documents uploaded before background rendering carry no status
+        if (status != null) {
+            return status;
+        }
+        return hasLegacyThumbnail ? ThumbnailStatus.READY : ThumbnailStatus.NONE;
     }
 
     // Inner class for stats
@@ -4,7 +4,6 @@ import com.dms.entity.Notification;
 import com.dms.security.JwtTokenUtil;
 import com.dms.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -46,8 +45,18 @@ public class NotificationController {
     }
 
     @GetMapping("/page")
-    public ResponseEntity<Page<Notification>> page(@RequestParam int page, @RequestParam int size) {
+    public ResponseEntity<?> page(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor) {
         Long userId = getCurrentUserId();
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(notificationService.getUserNotifications(userId, cursor, size));
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body("Error retrieving notifications: " + e.getMessage());
+            }
+        }
         return ResponseEntity.ok(notificationService.getUserNotifications(userId, page, size));
     }
 
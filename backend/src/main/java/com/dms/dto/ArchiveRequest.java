@@ -0,0 +1,35 @@
+package com.dms.dto;
+
+import java.util.List;
+
+/**
+ * Selects the documents of a ZIP archive, either by id or by a search query.
+ */
+public class ArchiveRequest {
+
+    private List<String> documentIds;
+    private String query;
+
+    public ArchiveRequest() {}
+
+    public ArchiveRequest(List<String> documentIds, String query) {
+        this.documentIds = documentIds;
+        this.query = query;
+    }
+
+    public List<String> getDocumentIds() {
+        return documentIds;
+    }
+
+    public void setDocumentIds(List<String> documentIds) {
+        this.documentIds = documentIds;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+}
@@ -8,6 +8,8 @@ public class AuthResponse {
     private String username;
     private String email;
     private String role;
+    private String refreshToken;
+    private Long expiresIn; // Seconds until the access token expires
 
     // Constructors
     public AuthResponse() {}
@@ -68,4 +70,20 @@ public class AuthResponse {
     public void setRole(String role) {
         this.role = role;
     }
-} 
\ No newline at end of file
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public Long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(Long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+}
@@ -0,0 +1,54 @@
+package com.dms.dto;
+
+/**
+ * Outcome of one file of a bulk upload, streamed to the client as soon as it is known.
+ */
+public class BulkUploadResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private final String filename;
+    private final Status status;
+    private final String documentId;
+    private final Long fileSize;
+    private final String error;
+
+    private BulkUploadResult(String filename, Status status, String documentId, Long fileSize, String error) {
+        this.filename = filename;
+        this.status = status;
+        this.documentId = documentId;
+        this.fileSize = fileSize;
+        this.error = error;
+    }
+
+    public static BulkUploadResult created(String filename, String documentId, Long fileSize) {
+        return new BulkUploadResult(filename, Status.CREATED, documentId, fileSize, null);
+    }
+
+    public static BulkUploadResult failed(String filename, String error) {
+        return new BulkUploadResult(filename, Status.FAILED, null, null, error);
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
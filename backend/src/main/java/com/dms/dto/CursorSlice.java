@@ -0,0 +1,41 @@
+package com.dms.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset listing. There is no total count; {@code nextCursor} is passed back as
+ * {@code cursor} to fetch the following page and is null on the last one.
+ */
+public class CursorSlice<T> {
+
+    private final List<T> content;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public CursorSlice(List<T> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public <R> CursorSlice<R> map(Function<? super T, ? extends R> converter) {
+        return new CursorSlice<>(content.stream().<R>map(converter).toList(), hasNext, nextCursor);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getNumberOfElements() {
+        return content.size();
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
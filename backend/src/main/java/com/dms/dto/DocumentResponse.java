@@ -1,5 +1,7 @@
 package com.dms.dto;
 
+import com.dms.entity.ThumbnailStatus;
+
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -20,7 +22,10 @@ public class DocumentResponse {
     private Integer version;
     private LocalDateTime lastModified;
     private Long downloadCount;
-    private String thumbnailContent;
+    private String thumbnailUrl;
+    private Integer thumbnailVersion;
+    private Long lockVersion; // Pass back as expectedVersion when updating or deleting
+    private ThumbnailStatus thumbnailStatus;
 
     // Constructors
     public DocumentResponse() {}
@@ -28,7 +33,7 @@ public class DocumentResponse {
     public DocumentResponse(String id, String filename, String originalFilename, String contentType, 
                           Long fileSize, Long uploadedBy, String uploadedByUsername, LocalDateTime uploadDate, 
                           boolean isPublic, List<Long> allowedUsers, String description, List<String> tags, 
-                          Integer version, LocalDateTime lastModified, Long downloadCount, String thumbnailContent) {
+                          Integer version, LocalDateTime lastModified, Long downloadCount) {
         this.id = id;
         this.filename = filename;
         this.originalFilename = originalFilename;
@@ -44,7 +49,6 @@ public class DocumentResponse {
         this.version = version;
         this.lastModified = lastModified;
         this.downloadCount = downloadCount;
-        this.thumbnailContent = thumbnailContent;
     }
 
     // Getters and Setters
@@ -168,11 +172,35 @@ public class DocumentResponse {
         this.downloadCount = downloadCount;
     }
 
-    public String getThumbnailContent() {
-        return thumbnailContent;
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public Integer getThumbnailVersion() {
+        return thumbnailVersion;
+    }
+
+    public void setThumbnailVersion(Integer thumbnailVersion) {
+        this.thumbnailVersion = thumbnailVersion;
+    }
+
+    public Long getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Long lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
+    public ThumbnailStatus getThumbnailStatus() {
+        return thumbnailStatus;
     }
 
-    public void setThumbnailContent(String thumbnailContent) {
-        this.thumbnailContent = thumbnailContent;
+    public void setThumbnailStatus(ThumbnailStatus thumbnailStatus) {
+        this.thumbnailStatus = thumbnailStatus;
     }
-} 
\ No newline at end of file
+}
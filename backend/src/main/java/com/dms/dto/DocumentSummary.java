@@ -0,0 +1,49 @@
+package com.dms.dto;
+
+import com.dms.entity.ThumbnailStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Metadata-only projection of {@link com.dms.entity.Document} used by listing and search
+ * queries, so that result pages never pull file content out of MongoDB.
+ */
+public interface DocumentSummary {
+
+    String getId();
+
+    String getFilename();
+
+    String getOriginalFilename();
+
+    String getContentType();
+
+    Long getFileSize();
+
+    Long getUploadedBy();
+
+    String getUploadedByUsername();
+
+    LocalDateTime getUploadDate();
+
+    boolean getIsPublic();
+
+    List<Long> getAllowedUsers();
+
+    String getDescription();
+
+    List<String> getTags();
+
+    Integer getVersion();
+
+    LocalDateTime getLastModified();
+
+    Long getDownloadCount();
+
+    Integer getThumbnailVersion();
+
+    Long getLockVersion();
+
+    ThumbnailStatus getThumbnailStatus();
+}
@@ -0,0 +1,114 @@
+package com.dms.dto;
+
+import java.time.LocalDateTime;
+
+public class DocumentVersionResponse {
+
+    private Integer versionNumber;
+    private String originalFilename;
+    private String contentType;
+    private Long fileSize;
+    private String checksum;
+    private Long uploadedBy;
+    private String uploadedByUsername;
+    private LocalDateTime uploadedAt;
+    private String comment;
+    private boolean current;
+
+    public DocumentVersionResponse() {}
+
+    public DocumentVersionResponse(Integer versionNumber, String originalFilename, String contentType, Long fileSize,
+                                   String checksum, Long uploadedBy, String uploadedByUsername,
+                                   LocalDateTime uploadedAt, String comment, boolean current) {
+        this.versionNumber = versionNumber;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.fileSize = fileSize;
+        this.checksum = checksum;
+        this.uploadedBy = uploadedBy;
+        this.uploadedByUsername = uploadedByUsername;
+        this.uploadedAt = uploadedAt;
+        this.comment = comment;
+        this.current = current;
+    }
+
+    public Integer getVersionNumber() {
+        return versionNumber;
+    }
+
+    public void setVersionNumber(Integer versionNumber) {
+        this.versionNumber = versionNumber;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public Long getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(Long uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public String getUploadedByUsername() {
+        return uploadedByUsername;
+    }
+
+    public void setUploadedByUsername(String uploadedByUsername) {
+        this.uploadedByUsername = uploadedByUsername;
+    }
+
+    public LocalDateTime getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(LocalDateTime uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+
+    public boolean isCurrent() {
+        return current;
+    }
+
+    public void setCurrent(boolean current) {
+        this.current = current;
+    }
+}
@@ -0,0 +1,70 @@
+package com.dms.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registry entry for deduplicated content: the SHA-256 of the bytes is the id, and
+ * {@code refCount} counts the documents and revisions that point at the stored blob.
+ */
+@Document(collection = "content_blobs")
+public class ContentBlob {
+
+    @Id
+    private String checksum;
+
+    @Field("content_ref")
+    private String contentRef;
+
+    @Field("size")
+    private Long size;
+
+    @Field("ref_count")
+    private long refCount;
+
+    @Field("created_at")
+    private LocalDateTime createdAt;
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getContentRef() {
+        return contentRef;
+    }
+
+    public void setContentRef(String contentRef) {
+        this.contentRef = contentRef;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(long refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -1,14 +1,22 @@
 package com.dms.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @org.springframework.data.mongodb.core.mapping.Document(collection = "documents")
 public class Document {
 
+    // Entry in visibleTo that grants every user access; user ids are always positive
+    public static final long PUBLIC_ACCESS = -1L;
+
     @Id
     private String id;
 
@@ -27,11 +35,35 @@ public class Document {
     @Field("file_path")
     private String filePath;
 
+    @Field("content_ref")
+    private String contentRef; // Reference into the content store, e.g. "gridfs:<id>"
+
+    @Field("checksum_sha256")
+    private String checksum;
+
     @Field("file_content")
-    private String fileContent; // Base64 encoded file content
+    private String fileContent; // Legacy Base64 content of records written before the content store
 
     @Field("thumbnail_content")
-    private String thumbnailContent; // Base64 encoded PNG thumbnail
+    private String thumbnailContent; // Legacy Base64 PNG thumbnail of records rendered before renditions
+
+    @Field("thumbnail_renditions")
+    private Map<String, String> thumbnailRenditions; // Rendition key (e.g. "jpeg_240") -> content reference
+
+    @Field("thumbnail_version")
+    private Integer thumbnailVersion;
+
+    @Field("thumbnail_status")
+    private ThumbnailStatus thumbnailStatus;
+
+    @Field("text_ref")
+    private String textRef; // Extracted plain text in the content store, used by the search index
+
+    @Field("text_status")
+    private TextStatus textStatus;
+
+    @Field("text_extracted_at")
+    private LocalDateTime textExtractedAt;
 
     @Field("uploaded_by")
     private Long uploadedBy;
@@ -48,6 +80,9 @@ public class Document {
     @Field("allowed_users")
     private List<Long> allowedUsers;
 
+    @Field("visible_to")
+    private List<Long> visibleTo; // Owner, allowed users and PUBLIC_ACCESS when public; kept in sync by updateVisibleTo()
+
     @Field("description")
     private String description;
 
@@ -57,6 +92,10 @@ public class Document {
     @Field("version")
     private Integer version = 1;
 
+    @Version
+    @Field("lock_version")
+    private Long lockVersion; // Optimistic lock, bumped by every metadata write; not the user-facing version
+
     @Field("last_modified")
     private LocalDateTime lastModified;
 
@@ -66,17 +105,20 @@ public class Document {
     @Field("is_deleted")
     private boolean isDeleted = false;
 
+    @Field("deleted_at")
+    private LocalDateTime deletedAt; // Start of the retention period after which the document is purged
+
     // Constructors
     public Document() {}
 
     public Document(String filename, String originalFilename, String contentType, Long fileSize, 
-                   String filePath, String fileContent, Long uploadedBy, String uploadedByUsername) {
+                   String filePath, String contentRef, Long uploadedBy, String uploadedByUsername) {
         this.filename = filename;
         this.originalFilename = originalFilename;
         this.contentType = contentType;
         this.fileSize = fileSize;
         this.filePath = filePath;
-        this.fileContent = fileContent;
+        this.contentRef = contentRef;
         this.uploadedBy = uploadedBy;
         this.uploadedByUsername = uploadedByUsername;
         this.uploadDate = LocalDateTime.now();
@@ -132,6 +174,22 @@ public class Document {
         this.filePath = filePath;
     }
 
+    public String getContentRef() {
+        return contentRef;
+    }
+
+    public void setContentRef(String contentRef) {
+        this.contentRef = contentRef;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
     public String getFileContent() {
         return fileContent;
     }
@@ -148,6 +206,54 @@ public class Document {
         this.thumbnailContent = thumbnailContent;
     }
 
+    public Map<String, String> getThumbnailRenditions() {
+        return thumbnailRenditions;
+    }
+
+    public void setThumbnailRenditions(Map<String, String> thumbnailRenditions) {
+        this.thumbnailRenditions = thumbnailRenditions;
+    }
+
+    public Integer getThumbnailVersion() {
+        return thumbnailVersion;
+    }
+
+    public void setThumbnailVersion(Integer thumbnailVersion) {
+        this.thumbnailVersion = thumbnailVersion;
+    }
+
+    public String getTextRef() {
+        return textRef;
+    }
+
+    public void setTextRef(String textRef) {
+        this.textRef = textRef;
+    }
+
+    public TextStatus getTextStatus() {
+        return textStatus;
+    }
+
+    public void setTextStatus(TextStatus textStatus) {
+        this.textStatus = textStatus;
+    }
+
+    public LocalDateTime getTextExtractedAt() {
+        return textExtractedAt;
+    }
+
+    public void setTextExtractedAt(LocalDateTime textExtractedAt) {
+        this.textExtractedAt = textExtractedAt;
+    }
+
+    public ThumbnailStatus getThumbnailStatus() {
+        return thumbnailStatus;
+    }
+
+    public void setThumbnailStatus(ThumbnailStatus thumbnailStatus) {
+        this.thumbnailStatus = thumbnailStatus;
+    }
+
     public Long getUploadedBy() {
         return uploadedBy;
     }
@@ -188,6 +294,14 @@ public class Document {
         this.allowedUsers = allowedUsers;
     }
 
+    public List<Long> getVisibleTo() {
+        return visibleTo;
+    }
+
+    public void setVisibleTo(List<Long> visibleTo) {
+        this.visibleTo = visibleTo;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -212,6 +326,14 @@ public class Document {
         this.version = version;
     }
 
+    public Long getLockVersion() {
+        return lockVersion;
+    }
+
+    public void setLockVersion(Long lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
     public LocalDateTime getLastModified() {
         return lastModified;
     }
@@ -236,6 +358,14 @@ public class Document {
         isDeleted = deleted;
     }
 
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
     // Helper methods
     public void incrementDownloadCount() {
         this.downloadCount++;
@@ -245,6 +375,27 @@ public class Document {
         this.lastModified = LocalDateTime.now();
     }
 
+    /**
+     * Recomputes the materialized access list from the owner, the public flag and the allowed
+     * users. Call before saving whenever any of them changed.
+     */
+    public void updateVisibleTo() {
+        this.visibleTo = computeVisibleTo();
+    }
+
+    public List<Long> computeVisibleTo() {
+        Set<Long> visible = new LinkedHashSet<>();
+        visible.add(uploadedBy);
+        if (isPublic) {
+            visible.add(PUBLIC_ACCESS);
+        }
+        if (allowedUsers != null) {
+            visible.addAll(allowedUsers);
+        }
+        visible.remove(null);
+        return new ArrayList<>(visible);
+    }
+
     public boolean canAccess(Long userId) {
         if (isPublic) {
             return true;
@@ -0,0 +1,135 @@
+package com.dms.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * A unit of background work on one document, such as rendering its thumbnails or extracting
+ * its text. Jobs of all types share the {@code document_jobs} collection.
+ */
+@Document(collection = "document_jobs")
+public class DocumentJob {
+
+    public enum Type {
+        THUMBNAIL,
+        TEXT_EXTRACTION
+    }
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        FAILED
+    }
+
+    @Id
+    private String id;
+
+    @Field("type")
+    private Type type;
+
+    @Field("document_id")
+    private String documentId;
+
+    @Field("status")
+    private Status status = Status.PENDING;
+
+    @Field("attempts")
+    private int attempts = 0;
+
+    @Field("next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Field("lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Field("last_error")
+    private String lastError;
+
+    @Field("created_at")
+    private LocalDateTime createdAt;
+
+    public DocumentJob() {}
+
+    public DocumentJob(Type type, String documentId) {
+        this.type = type;
+        this.documentId = documentId;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,165 @@
+package com.dms.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * One revision in the version chain of a document. The current revision is recorded here as
+ * well as on the document itself; content is shared through {@link ContentBlob}.
+ */
+@Document(collection = "document_versions")
+public class DocumentVersion {
+
+    @Id
+    private String id;
+
+    @Field("document_id")
+    private String documentId;
+
+    @Field("version_number")
+    private Integer versionNumber;
+
+    @Field("content_ref")
+    private String contentRef;
+
+    @Field("checksum_sha256")
+    private String checksum;
+
+    @Field("file_size")
+    private Long fileSize;
+
+    @Field("content_type")
+    private String contentType;
+
+    @Field("original_filename")
+    private String originalFilename;
+
+    @Field("uploaded_by")
+    private Long uploadedBy;
+
+    @Field("uploaded_by_username")
+    private String uploadedByUsername;
+
+    @Field("uploaded_at")
+    private LocalDateTime uploadedAt;
+
+    @Field("comment")
+    private String comment;
+
+    public DocumentVersion() {}
+
+    public DocumentVersion(String documentId, Integer versionNumber, String contentRef, String checksum, Long fileSize,
+                           String contentType, String originalFilename, Long uploadedBy, String uploadedByUsername,
+                           LocalDateTime uploadedAt, String comment) {
+        this.documentId = documentId;
+        this.versionNumber = versionNumber;
+        this.contentRef = contentRef;
+        this.checksum = checksum;
+        this.fileSize = fileSize;
+        this.contentType = contentType;
+        this.originalFilename = originalFilename;
+        this.uploadedBy = uploadedBy;
+        this.uploadedByUsername = uploadedByUsername;
+        this.uploadedAt = uploadedAt;
+        this.comment = comment;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    public Integer getVersionNumber() {
+        return versionNumber;
+    }
+
+    public void setVersionNumber(Integer versionNumber) {
+        this.versionNumber = versionNumber;
+    }
+
+    public String getContentRef() {
+        return contentRef;
+    }
+
+    public void setContentRef(String contentRef) {
+        this.contentRef = contentRef;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public Long getUploadedBy() {
+        return uploadedBy;
+    }
+
+    public void setUploadedBy(Long uploadedBy) {
+        this.uploadedBy = uploadedBy;
+    }
+
+    public String getUploadedByUsername() {
+        return uploadedByUsername;
+    }
+
+    public void setUploadedByUsername(String uploadedByUsername) {
+        this.uploadedByUsername = uploadedByUsername;
+    }
+
+    public LocalDateTime getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(LocalDateTime uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public void setComment(String comment) {
+        this.comment = comment;
+    }
+}
@@ -0,0 +1,8 @@
+package com.dms.entity;
+
+public enum TextStatus {
+    PENDING,
+    READY,
+    FAILED,
+    NONE
+}
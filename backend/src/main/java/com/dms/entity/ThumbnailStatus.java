@@ -0,0 +1,8 @@
+package com.dms.entity;
+
+public enum ThumbnailStatus {
+    PENDING,
+    READY,
+    FAILED,
+    NONE
+}
@@ -0,0 +1,40 @@
+package com.dms.repository.jpa;
+
+import com.dms.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Conditional, so that of two concurrent refreshes with the same token only one succeeds
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.id = :id AND t.revokedAt IS NULL")
+    int revoke(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Clears the persistence context, so a refresh that lost the race re-reads the rotated row
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now, t.replacedByHash = :replacedByHash WHERE t.id = :id AND t.revokedAt IS NULL")
+    int rotate(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("replacedByHash") String replacedByHash);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.userId = :userId AND t.revokedAt IS NULL")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
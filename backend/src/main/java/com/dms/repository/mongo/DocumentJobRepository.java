@@ -0,0 +1,13 @@
+package com.dms.repository.mongo;
+
+import com.dms.entity.DocumentJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentJobRepository extends MongoRepository<DocumentJob, String> {
+
+    long countByTypeAndStatus(DocumentJob.Type type, DocumentJob.Status status);
+
+    void deleteByDocumentId(String documentId);
+}
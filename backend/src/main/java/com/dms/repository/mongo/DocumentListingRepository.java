@@ -0,0 +1,18 @@
+package com.dms.repository.mongo;
+
+import com.dms.dto.CursorSlice;
+import com.dms.dto.DocumentSummary;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Keyset-paginated document listings. Each returns the page after {@code after} (the first page
+ * when it is null), ordered by {@code sortBy} and then id, without counting the full result.
+ */
+public interface DocumentListingRepository {
+
+    CursorSlice<DocumentSummary> scrollUserDocuments(Long userId, String sortBy, Sort.Direction direction, KeysetCursor after, int size);
+
+    CursorSlice<DocumentSummary> scrollPublicDocuments(String sortBy, Sort.Direction direction, KeysetCursor after, int size);
+
+    CursorSlice<DocumentSummary> scrollAccessibleDocuments(Long userId, String sortBy, Sort.Direction direction, KeysetCursor after, int size);
+}
@@ -0,0 +1,52 @@
+package com.dms.repository.mongo;
+
+import com.dms.dto.CursorSlice;
+import com.dms.dto.DocumentSummary;
+import com.dms.entity.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Map;
+import java.util.function.Function;
+
+class DocumentListingRepositoryImpl implements DocumentListingRepository {
+
+    // Same exclusions as DocumentRepository.SUMMARY_FIELDS
+    private static final String[] CONTENT_FIELDS = {"fileContent", "thumbnailContent", "thumbnailRenditions"};
+
+    private static final Map<String, Function<DocumentSummary, Object>> SORT_VALUES = Map.of(
+            "uploadDate", DocumentSummary::getUploadDate,
+            "originalFilename", DocumentSummary::getOriginalFilename,
+            "fileSize", DocumentSummary::getFileSize,
+            "downloadCount", DocumentSummary::getDownloadCount);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public CursorSlice<DocumentSummary> scrollUserDocuments(Long userId, String sortBy, Sort.Direction direction, KeysetCursor after, int size) {
+        return scroll(Criteria.where("uploadedBy").is(userId).and("isDeleted").is(false), sortBy, direction, after, size);
+    }
+
+    @Override
+    public CursorSlice<DocumentSummary> scrollPublicDocuments(String sortBy, Sort.Direction direction, KeysetCursor after, int size) {
+        return scroll(Criteria.where("visibleTo").is(Document.PUBLIC_ACCESS).and("isDeleted").is(false), sortBy, direction, after, size);
+    }
+
+    @Override
+    public CursorSlice<DocumentSummary> scrollAccessibleDocuments(Long userId, String sortBy, Sort.Direction direction, KeysetCursor after, int size) {
+        Criteria filter = Criteria.where("visibleTo").in(userId, Document.PUBLIC_ACCESS).and("isDeleted").is(false);
+        return scroll(filter, sortBy, direction, after, size);
+    }
+
+    private CursorSlice<DocumentSummary> scroll(Criteria filter, String sortBy, Sort.Direction direction, KeysetCursor after, int size) {
+        Function<DocumentSummary, Object> sortValue = SORT_VALUES.get(sortBy);
+        if (sortValue == null) {
+            throw new RuntimeException("Unsupported sort field: " + sortBy + ". Allowed: " + SORT_VALUES.keySet());
+        }
+        return KeysetQueries.scroll(mongoTemplate, Document.class, DocumentSummary.class, filter, sortBy, direction,
+                after, size, sortValue, DocumentSummary::getId, CONTENT_FIELDS);
+    }
+}
@@ -0,0 +1,100 @@
+package com.dms.repository.mongo;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off backfills of fields that older documents lack. Each only touches documents that
+ * are missing the field, so after the first run they are cheap no-ops.
+ */
+@Component
+public class DocumentMigrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentMigrations.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Runs before the indexes are ensured so that the backfills don't pay for index
+     * maintenance on every updated document.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrate() {
+        backfillVisibleTo();
+        backfillLockVersion();
+        backfillDeletedAt();
+    }
+
+    /**
+     * Public and accessible listings only look at {@code visible_to}. The value is computed on
+     * the server by one pipeline update, in the same way as
+     * {@link com.dms.entity.Document#updateVisibleTo()}.
+     */
+    private void backfillVisibleTo() {
+        Document missing = new Document("visible_to", new Document("$exists", false));
+        Document visibleTo = new Document("$setUnion", List.of(
+                List.of("$uploaded_by"),
+                new Document("$ifNull", List.of("$allowed_users", List.of())),
+                new Document("$cond", List.of(
+                        new Document("$eq", List.of("$is_public", true)),
+                        List.of(com.dms.entity.Document.PUBLIC_ACCESS),
+                        List.of()))));
+        try {
+            UpdateResult result = mongoTemplate.getCollection("documents")
+                    .updateMany(missing, List.of(new Document("$set", new Document("visible_to", visibleTo))));
+            if (result.getModifiedCount() > 0) {
+                logger.info("Backfilled visible_to on {} documents", result.getModifiedCount());
+            }
+        } catch (RuntimeException e) {
+            logger.error("visible_to backfill failed; public and accessible listings may miss older documents", e);
+        }
+    }
+
+    /**
+     * {@code lock_version} is the {@code @Version} property. Spring Data treats an entity
+     * without one as new, so a repository save of such a document would try to insert it.
+     */
+    private void backfillLockVersion() {
+        try {
+            UpdateResult result = mongoTemplate.getCollection("documents").updateMany(
+                    new Document("lock_version", new Document("$exists", false)),
+                    new Document("$set", new Document("lock_version", 0L)));
+            if (result.getModifiedCount() > 0) {
+                logger.info("Backfilled lock_version on {} documents", result.getModifiedCount());
+            }
+        } catch (RuntimeException e) {
+            logger.error("lock_version backfill failed", e);
+        }
+    }
+
+    /**
+     * The purge only considers deleted documents with a {@code deleted_at}. Documents deleted
+     * before it was recorded were last modified by their deletion.
+     */
+    private void backfillDeletedAt() {
+        try {
+            UpdateResult result = mongoTemplate.getCollection("documents").updateMany(
+                    new Document("is_deleted", true).append("deleted_at", new Document("$exists", false)),
+                    List.of(new Document("$set", new Document("deleted_at",
+                            new Document("$ifNull", List.of("$last_modified", "$upload_date"))))));
+            if (result.getModifiedCount() > 0) {
+                logger.info("Backfilled deleted_at on {} documents", result.getModifiedCount());
+            }
+        } catch (RuntimeException e) {
+            logger.error("deleted_at backfill failed; older deleted documents won't be purged", e);
+        }
+    }
+}
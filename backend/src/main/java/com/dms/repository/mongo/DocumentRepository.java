@@ -1,5 +1,6 @@
 package com.dms.repository.mongo;
 
+import com.dms.dto.DocumentSummary;
 import com.dms.entity.Document;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -8,11 +9,22 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DocumentRepository extends MongoRepository<Document, String> {
+public interface DocumentRepository extends MongoRepository<Document, String>, DocumentListingRepository {
+
+    // Listing queries return DocumentSummary and leave content fields out of the result
+    String SUMMARY_FIELDS = "{'fileContent': 0, 'thumbnailContent': 0, 'thumbnailRenditions': 0}";
+
+    // Single-document lookups that never need the legacy inline content
+    @Query(value = "{'_id': ?0, 'isDeleted': false}", fields = "{'fileContent': 0}")
+    Optional<Document> findMetadataById(String id);
+
+    @Query(value = "{'_id': {$in: ?0}, 'isDeleted': false}", fields = "{'fileContent': 0, 'thumbnailContent': 0}")
+    List<Document> findMetadataByIdIn(Collection<String> ids);
 
     List<Document> findByUploadedByAndIsDeletedFalse(Long uploadedBy);
     
@@ -22,42 +34,42 @@ public interface DocumentRepository extends MongoRepository<Document, String> {
     
     Page<Document> findByIsDeletedFalse(Pageable pageable);
     
-    @Query("{'uploadedBy': ?0, 'isDeleted': false}")
-    Page<Document> findUserDocuments(Long userId, Pageable pageable);
+    @Query(value = "{'uploadedBy': ?0, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    Page<DocumentSummary> findUserDocuments(Long userId, Pageable pageable);
     
-    @Query("{'isPublic': true, 'isDeleted': false}")
-    Page<Document> findPublicDocuments(Pageable pageable);
+    // Listings filter on the materialized visibleTo field (see Document.updateVisibleTo), -1 being Document.PUBLIC_ACCESS
+    @Query(value = "{'visibleTo': -1, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    Page<DocumentSummary> findPublicDocuments(Pageable pageable);
     
     @Query("{'allowedUsers': ?0, 'isDeleted': false}")
     List<Document> findDocumentsSharedWithUser(Long userId);
     
-    @Query("{'$or': [{'isPublic': true}, {'uploadedBy': ?0}, {'allowedUsers': ?0}], 'isDeleted': false}")
-    List<Document> findAccessibleDocuments(Long userId);
+    @Query(value = "{'visibleTo': {$in: [?0, -1]}, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    List<DocumentSummary> findAccessibleDocuments(Long userId);
     
-    @Query("{'$or': [{'isPublic': true}, {'uploadedBy': ?0}, {'allowedUsers': ?0}], 'isDeleted': false}")
-    Page<Document> findAccessibleDocuments(Long userId, Pageable pageable);
+    @Query(value = "{'visibleTo': {$in: [?0, -1]}, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    Page<DocumentSummary> findAccessibleDocuments(Long userId, Pageable pageable);
     
     @Query("{'originalFilename': {$regex: ?0, $options: 'i'}, 'isDeleted': false}")
     List<Document> findByOriginalFilenameContainingIgnoreCase(String filename);
     
-    @Query("{'contentType': ?0, 'isDeleted': false}")
-    List<Document> findByContentType(String contentType);
-    
-    @Query("{'uploadDate': {$gte: ?0, $lte: ?1}, 'isDeleted': false}")
-    List<Document> findByUploadDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    @Query(value = "{'contentType': ?0, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    List<DocumentSummary> findByContentType(String contentType);
     
-    @Query("{'tags': {$in: ?0}, 'isDeleted': false}")
-    List<Document> findByTagsIn(List<String> tags);
+    @Query(value = "{'uploadDate': {$gte: ?0, $lte: ?1}, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    List<DocumentSummary> findByUploadDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
-    @Query("{'$or': [{'originalFilename': {$regex: ?0, $options: 'i'}}, {'description': {$regex: ?0, $options: 'i'}}, {'tags': {$regex: ?0, $options: 'i'}}], 'isDeleted': false}")
-    List<Document> searchDocuments(String searchTerm);
+    @Query(value = "{'tags': {$in: ?0}, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    List<DocumentSummary> findByTagsIn(List<String> tags);
     
-    @Query("{'$or': [{'originalFilename': {$regex: ?0, $options: 'i'}}, {'description': {$regex: ?0, $options: 'i'}}, {'tags': {$regex: ?0, $options: 'i'}}], 'isDeleted': false}")
-    Page<Document> searchDocuments(String searchTerm, Pageable pageable);
+    @Query(value = "{'_id': {$in: ?0}, 'isDeleted': false}", fields = SUMMARY_FIELDS)
+    List<DocumentSummary> findSummariesByIdIn(Collection<String> ids);
     
     Optional<Document> findByIdAndIsDeletedFalse(String id);
     
     long countByUploadedByAndIsDeletedFalse(Long uploadedBy);
     
-    long countByIsPublicTrueAndIsDeletedFalse();
+    // Served by the visible_to listing indexes, like findPublicDocuments
+    @Query(value = "{'visibleTo': -1, 'isDeleted': false}", count = true)
+    long countPublicDocuments();
 } 
\ No newline at end of file
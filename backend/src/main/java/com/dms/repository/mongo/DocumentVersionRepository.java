@@ -0,0 +1,18 @@
+package com.dms.repository.mongo;
+
+import com.dms.entity.DocumentVersion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentVersionRepository extends MongoRepository<DocumentVersion, String> {
+
+    List<DocumentVersion> findByDocumentIdOrderByVersionNumberDesc(String documentId);
+
+    Optional<DocumentVersion> findByDocumentIdAndVersionNumber(String documentId, Integer versionNumber);
+
+    boolean existsByDocumentIdAndVersionNumber(String documentId, Integer versionNumber);
+}
@@ -0,0 +1,73 @@
+package com.dms.repository.mongo;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a keyset page: the sort key and direction, the sort value of
+ * that row and its id as a tie-breaker. Clients only ever see the opaque encoded form.
+ */
+public record KeysetCursor(String sortBy, Sort.Direction direction, Object value, String id) {
+
+    private static final String VERSION = "1";
+
+    public String encode() {
+        String[] typed = encodeValue(value);
+        String raw = String.join("\n", VERSION, sortBy, direction.name(), id, typed[0], typed[1]);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor from a request; an empty cursor means the first page and yields null.
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // The value comes last so that it may contain the separator itself
+            String[] parts = raw.split("\n", 6);
+            if (parts.length != 6 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unknown format");
+            }
+            return new KeysetCursor(parts[1], Sort.Direction.valueOf(parts[2]), decodeValue(parts[4], parts[5]), parts[3]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Fails unless the cursor was issued for the same ordering as the current request.
+     */
+    public KeysetCursor requireSort(String expectedSortBy, Sort.Direction expectedDirection) {
+        if (!sortBy.equals(expectedSortBy) || direction != expectedDirection) {
+            throw new RuntimeException("Cursor was issued for a different sort order");
+        }
+        return this;
+    }
+
+    private static String[] encodeValue(Object value) {
+        if (value == null) return new String[] {"z", ""};
+        if (value instanceof LocalDateTime date) return new String[] {"t", date.toString()};
+        if (value instanceof Long number) return new String[] {"n", number.toString()};
+        if (value instanceof Float score) return new String[] {"f", Integer.toString(Float.floatToIntBits(score))};
+        if (value instanceof String text) return new String[] {"s", text};
+        throw new IllegalArgumentException("Unsupported cursor value type: " + value.getClass().getName());
+    }
+
+    private static Object decodeValue(String type, String encoded) {
+        return switch (type) {
+            case "z" -> null;
+            case "t" -> LocalDateTime.parse(encoded);
+            case "n" -> Long.parseLong(encoded);
+            case "f" -> Float.intBitsToFloat(Integer.parseInt(encoded));
+            case "s" -> encoded;
+            default -> throw new IllegalArgumentException("unknown value type " + type);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.dms.repository.mongo;
+
+import com.dms.dto.CursorSlice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Builds keyset ("seek") queries ordered by {@code (sortKey, _id)}.
+ * <p>
+ * Instead of skipping the rows of earlier pages, each page starts right after the position in
+ * the cursor and fetches one extra row to learn whether another page follows. No count is run.
+ * With a compound index that ends in the sort key and {@code _id}, the cost per page does not
+ * depend on how deep the client has scrolled.
+ */
+final class KeysetQueries {
+
+    private KeysetQueries() {}
+
+    static <T> CursorSlice<T> scroll(MongoTemplate mongoTemplate, Class<?> entityType, Class<T> resultType,
+                                     Criteria filter, String sortBy, Sort.Direction direction,
+                                     KeysetCursor after, int size,
+                                     Function<T, Object> sortValue, Function<T, String> idOf,
+                                     String... excludedFields) {
+        if (size < 1) {
+            throw new RuntimeException("Page size must be at least 1");
+        }
+        Criteria criteria = after == null ? filter : new Criteria().andOperator(filter, seek(sortBy, direction, after));
+        Query query = new Query(criteria)
+                .with(Sort.by(direction, sortBy).and(Sort.by(direction, "id")))
+                .limit(size + 1);
+        if (excludedFields.length > 0) {
+            query.fields().exclude(excludedFields);
+        }
+
+        List<T> rows = mongoTemplate.query(entityType).as(resultType).matching(query).all();
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            T last = content.get(content.size() - 1);
+            nextCursor = new KeysetCursor(sortBy, direction, sortValue.apply(last), idOf.apply(last)).encode();
+        }
+        return new CursorSlice<>(content, hasNext, nextCursor);
+    }
+
+    /**
+     * Rows strictly after the cursor in {@code (sortBy, id)} order. The range bound on the sort
+     * key keeps the index scan tight; ties on the key are then cut off by id.
+     */
+    static Criteria seek(String sortBy, Sort.Direction direction, KeysetCursor after) {
+        boolean descending = direction.isDescending();
+        Object value = after.value();
+        if (value == null) {
+            // Missing values sort lowest: descending, only other missing ones remain
+            if (descending) {
+                return Criteria.where(sortBy).is(null).and("id").lt(after.id());
+            }
+            return new Criteria().orOperator(
+                    Criteria.where(sortBy).is(null).and("id").gt(after.id()),
+                    Criteria.where(sortBy).ne(null));
+        }
+        Criteria range = descending ? Criteria.where(sortBy).lte(value) : Criteria.where(sortBy).gte(value);
+        Criteria seen = Criteria.where(sortBy).is(value).and("id");
+        seen = descending ? seen.gte(after.id()) : seen.lte(after.id());
+        return range.norOperator(seen);
+    }
+}
@@ -0,0 +1,240 @@
+package com.dms.repository.mongo;
+
+import com.mongodb.MongoCommandException;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Declares the MongoDB indexes behind every repository query shape and builds them at startup.
+ * <p>
+ * Listings filter on one access path ({@code uploaded_by} for the owner's documents, the
+ * multikey {@code visible_to} for public and accessible ones) plus {@code is_deleted} and sort
+ * on a client-chosen key, so each access path gets one compound index per key in
+ * {@link #SORT_FIELDS}, ending in {@code _id} so keyset pages can seek on
+ * {@code (sortKey, _id)}. Only those keys are accepted as {@code sortBy}; any other sort would
+ * need an in-memory sort over the whole result.
+ * <p>
+ * An index whose definition changed is dropped and rebuilt under the same name, and indexes
+ * listed in {@link #RETIRED_INDEX_PREFIXES} are dropped.
+ * <p>
+ * After the indexes are built, each declared query shape is explained and a warning is logged
+ * when its winning plan still contains a collection scan or an in-memory sort.
+ */
+@Component
+public class MongoIndexManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexManager.class);
+
+    /** Sortable listing properties mapped to the stored field names they sort on. */
+    public static final Map<String, String> SORT_FIELDS = Map.of(
+            "uploadDate", "upload_date",
+            "originalFilename", "original_filename",
+            "fileSize", "file_size",
+            "downloadCount", "download_count");
+
+    // Listing indexes of access paths that visible_to replaced
+    private static final List<String> RETIRED_INDEX_PREFIXES = List.of("is_public_listing_by_", "allowed_users_listing_by_");
+
+    // Server error codes for an existing index with the same name but other keys or options
+    private static final Set<Integer> INDEX_CONFLICT_CODES = Set.of(85, 86);
+
+    private static final String DOCUMENTS = "documents";
+    private static final String NOTIFICATIONS = "notifications";
+    private static final String JOBS = "document_jobs";
+    private static final String VERSIONS = "document_versions";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.mongo.verify-query-plans:true}")
+    private boolean verifyQueryPlans;
+
+    private record QueryShape(String name, String collection, Document filter, Document sort) {}
+
+    public static boolean isSortable(String property) {
+        return SORT_FIELDS.containsKey(property);
+    }
+
+    /**
+     * Runs right after {@link DocumentMigrations} and ahead of the other startup listeners,
+     * so that catch-up and backfill queries already have their indexes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void ensureIndexes() {
+        Map<String, List<Index>> indexes = declareIndexes();
+        indexes.forEach((collection, declared) -> {
+            IndexOperations ops = mongoTemplate.indexOps(collection);
+            dropRetiredIndexes(collection, ops);
+            for (Index index : declared) {
+                try {
+                    ensureIndex(ops, index);
+                } catch (RuntimeException e) {
+                    logger.error("Could not create index {} on {}: {}", index.getIndexKeys(), collection, e.getMessage());
+                }
+            }
+        });
+        logger.info("Ensured {} MongoDB indexes", indexes.values().stream().mapToInt(List::size).sum());
+        if (verifyQueryPlans) {
+            declareQueryShapes().forEach(this::verifyPlan);
+        }
+    }
+
+    private void ensureIndex(IndexOperations ops, Index index) {
+        try {
+            ops.ensureIndex(index);
+        } catch (RuntimeException e) {
+            if (!isIndexConflict(e)) {
+                throw e;
+            }
+            String name = (String) index.getIndexOptions().get("name");
+            logger.info("Rebuilding index {} with its new definition {}", name, index.getIndexKeys());
+            ops.dropIndex(name);
+            ops.ensureIndex(index);
+        }
+    }
+
+    private void dropRetiredIndexes(String collection, IndexOperations ops) {
+        for (IndexInfo info : ops.getIndexInfo()) {
+            if (RETIRED_INDEX_PREFIXES.stream().anyMatch(info.getName()::startsWith)) {
+                logger.info("Dropping retired index {} on {}", info.getName(), collection);
+                ops.dropIndex(info.getName());
+            }
+        }
+    }
+
+    private static boolean isIndexConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoCommandException command && INDEX_CONFLICT_CODES.contains(command.getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, List<Index>> declareIndexes() {
+        Map<String, List<Index>> indexes = new LinkedHashMap<>();
+
+        List<Index> documents = new ArrayList<>();
+        for (String accessField : List.of("uploaded_by", "visible_to")) {
+            for (String sortField : SORT_FIELDS.values()) {
+                documents.add(new Index()
+                        .on(accessField, Sort.Direction.ASC)
+                        .on("is_deleted", Sort.Direction.ASC)
+                        .on(sortField, Sort.Direction.DESC)
+                        .on("_id", Sort.Direction.DESC)
+                        .named(accessField + "_listing_by_" + sortField));
+            }
+        }
+        documents.add(new Index().on("tags", Sort.Direction.ASC).on("is_deleted", Sort.Direction.ASC).named("tags_listing"));
+        documents.add(new Index().on("content_type", Sort.Direction.ASC).on("is_deleted", Sort.Direction.ASC).named("content_type_listing"));
+        // Equality before range: is_deleted first, then the upload_date range
+        documents.add(new Index().on("is_deleted", Sort.Direction.ASC).on("upload_date", Sort.Direction.ASC).named("upload_date_range"));
+        // Only deleted documents are waiting for the purge, so the index holds nothing else
+        documents.add(new Index().on("deleted_at", Sort.Direction.ASC)
+                .partial(PartialIndexFilter.of(Criteria.where("is_deleted").is(true))).named("purge_due"));
+        indexes.put(DOCUMENTS, documents);
+
+        indexes.put(NOTIFICATIONS, List.of(
+                new Index().on("recipient_user_id", Sort.Direction.ASC).on("created_at", Sort.Direction.DESC).on("_id", Sort.Direction.DESC).named("recipient_by_created_at"),
+                new Index().on("recipient_user_id", Sort.Direction.ASC).on("is_read", Sort.Direction.ASC).named("recipient_unread")));
+
+        indexes.put(JOBS, List.of(
+                new Index().on("type", Sort.Direction.ASC).on("status", Sort.Direction.ASC).on("next_attempt_at", Sort.Direction.ASC).named("due_jobs"),
+                new Index().on("type", Sort.Direction.ASC).on("status", Sort.Direction.ASC).on("lease_until", Sort.Direction.ASC).named("expired_leases"),
+                new Index().on("document_id", Sort.Direction.ASC).named("jobs_by_document")));
+
+        // Unique, so two concurrent uploads cannot both claim the next version number
+        indexes.put(VERSIONS, List.of(
+                new Index().on("document_id", Sort.Direction.ASC).on("version_number", Sort.Direction.DESC).unique().named("versions_by_document")));
+        return indexes;
+    }
+
+    private List<QueryShape> declareQueryShapes() {
+        List<QueryShape> shapes = new ArrayList<>();
+        for (Map.Entry<String, String> sort : SORT_FIELDS.entrySet()) {
+            // Keyset pages break ties on _id
+            Document order = new Document(sort.getValue(), -1).append("_id", -1);
+            shapes.add(new QueryShape("findUserDocuments by " + sort.getKey(), DOCUMENTS,
+                    new Document("uploaded_by", 0L).append("is_deleted", false), order));
+            shapes.add(new QueryShape("findPublicDocuments by " + sort.getKey(), DOCUMENTS,
+                    new Document("visible_to", com.dms.entity.Document.PUBLIC_ACCESS).append("is_deleted", false), order));
+            shapes.add(new QueryShape("findAccessibleDocuments by " + sort.getKey(), DOCUMENTS,
+                    new Document("visible_to", new Document("$in", List.of(0L, com.dms.entity.Document.PUBLIC_ACCESS)))
+                            .append("is_deleted", false), order));
+        }
+        shapes.add(new QueryShape("countPublicDocuments", DOCUMENTS,
+                new Document("visible_to", com.dms.entity.Document.PUBLIC_ACCESS).append("is_deleted", false), null));
+        shapes.add(new QueryShape("findByTagsIn", DOCUMENTS,
+                new Document("tags", new Document("$in", List.of(""))).append("is_deleted", false), null));
+        shapes.add(new QueryShape("findByContentType", DOCUMENTS,
+                new Document("content_type", "").append("is_deleted", false), null));
+        shapes.add(new QueryShape("findByUploadDateBetween", DOCUMENTS,
+                new Document("is_deleted", false).append("upload_date", new Document("$gte", new Date(0)).append("$lte", new Date())), null));
+        shapes.add(new QueryShape("purge candidates", DOCUMENTS,
+                new Document("is_deleted", true).append("deleted_at", new Document("$lt", new Date())), null));
+        shapes.add(new QueryShape("findByRecipientUserIdOrderByCreatedAtDesc", NOTIFICATIONS,
+                new Document("recipient_user_id", 0L), new Document("created_at", -1).append("_id", -1)));
+        shapes.add(new QueryShape("countByRecipientUserIdAndReadFalse", NOTIFICATIONS,
+                new Document("recipient_user_id", 0L).append("is_read", false), null));
+        return shapes;
+    }
+
+    private void verifyPlan(QueryShape shape) {
+        Document find = new Document("find", shape.collection()).append("filter", shape.filter());
+        if (shape.sort() != null) {
+            find.append("sort", shape.sort());
+        }
+        try {
+            Document explain = mongoTemplate.getDb().runCommand(
+                    new Document("explain", find).append("verbosity", "queryPlanner"));
+            Document planner = explain.get("queryPlanner", Document.class);
+            Object winningPlan = planner != null ? planner.get("winningPlan") : null;
+            List<String> stages = new ArrayList<>();
+            collectStages(winningPlan, stages);
+            if (stages.contains("COLLSCAN")) {
+                logger.warn("Query {} on {} falls back to COLLSCAN (plan stages {})", shape.name(), shape.collection(), stages);
+            } else if (stages.contains("SORT")) {
+                logger.warn("Query {} on {} sorts in memory (plan stages {})", shape.name(), shape.collection(), stages);
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Could not explain query {}: {}", shape.name(), e.getMessage());
+        }
+    }
+
+    private static void collectStages(Object plan, List<String> stages) {
+        if (plan instanceof Document stage) {
+            if (stage.get("stage") instanceof String name) {
+                stages.add(name);
+            }
+            // Child plans sit under inputStage, inputStages or, on newer servers, queryPlan
+            for (Object child : stage.values()) {
+                collectStages(child, stages);
+            }
+        } else if (plan instanceof List<?> children) {
+            children.forEach(child -> collectStages(child, stages));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.dms.repository.mongo;
+
+import com.dms.dto.CursorSlice;
+import com.dms.entity.Notification;
+
+/**
+ * Keyset-paginated notification feed, newest first.
+ */
+public interface NotificationListingRepository {
+
+    CursorSlice<Notification> scrollByRecipientUserId(Long recipientUserId, KeysetCursor after, int size);
+}
@@ -0,0 +1,24 @@
+package com.dms.repository.mongo;
+
+import com.dms.dto.CursorSlice;
+import com.dms.entity.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+class NotificationListingRepositoryImpl implements NotificationListingRepository {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public CursorSlice<Notification> scrollByRecipientUserId(Long recipientUserId, KeysetCursor after, int size) {
+        if (after != null) {
+            after.requireSort("createdAt", Sort.Direction.DESC);
+        }
+        return KeysetQueries.scroll(mongoTemplate, Notification.class, Notification.class,
+                Criteria.where("recipientUserId").is(recipientUserId), "createdAt", Sort.Direction.DESC,
+                after, size, Notification::getCreatedAt, Notification::getId);
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,11 +22,13 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtTokenUtil jwtTokenUtil;
+    private final TokenVerifier tokenVerifier;
+    private final PrincipalCache principalCache;
     private final UserDetailsService userDetailsService;
 
-    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil, UserDetailsService userDetailsService) {
-        this.jwtTokenUtil = jwtTokenUtil;
+    public JwtAuthenticationFilter(TokenVerifier tokenVerifier, PrincipalCache principalCache, UserDetailsService userDetailsService) {
+        this.tokenVerifier = tokenVerifier;
+        this.principalCache = principalCache;
         this.userDetailsService = userDetailsService;
     }
 
@@ -35,7 +38,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
+        TokenVerifier.VerifiedToken token = null;
         String jwt = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
@@ -50,7 +53,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (jwt != null) {
             try {
-                username = jwtTokenUtil.extractUsername(jwt);
+                // Signature and expiry are checked here, once per request
+                token = tokenVerifier.verify(jwt);
             } catch (SignatureException e) {
                 logger.error("JWT signature verification failed", e);
             } catch (ExpiredJwtException e) {
@@ -64,33 +68,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             } catch (Exception e) {
                 logger.error("Error extracting username from JWT token", e);
             }
-        } else {
-            System.out.println("JWT Authentication Filter - No JWT provided");
         }
 
+        String username = token != null ? token.username() : null;
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            System.out.println("JWT Authentication Filter - Loading user details for username: " + username);
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            System.out.println("JWT Authentication Filter - User details loaded: " + userDetails.getUsername());
+            UserDetails userDetails = loadPrincipal(token);
 
-            if (jwtTokenUtil.validateToken(jwt, userDetails)) {
+            if (userDetails != null && username.equals(userDetails.getUsername()) && userDetails.isEnabled()) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
                 logger.debug("Authentication set for user: " + username);
-                System.out.println("JWT Authentication Filter - Authentication set successfully for user: " + username);
             } else {
                 logger.debug("JWT token validation failed for user: " + username);
-                System.out.println("JWT Authentication Filter - Token validation failed for user: " + username);
             }
         } else if (username == null) {
             logger.debug("No username extracted from JWT token");
-            System.out.println("JWT Authentication Filter - No username extracted from JWT token");
         } else {
             logger.debug("Authentication already exists for user: " + username);
-            System.out.println("JWT Authentication Filter - Authentication already exists for user: " + username);
         }
         chain.doFilter(request, response);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Tokens carry the user id, which is looked up in the principal cache; only tokens without
+     * one fall back to a lookup by username.
+     */
+    private UserDetails loadPrincipal(TokenVerifier.VerifiedToken token) {
+        if (token.userId() != null) {
+            return principalCache.get(token.userId()).orElse(null);
+        }
+        try {
+            return userDetailsService.loadUserByUsername(token.username());
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.dms.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -10,6 +11,7 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -21,7 +23,21 @@ public class JwtTokenUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // Derived once; building a parser per call re-creates the key and its HMAC setup every time
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = deriveSigningKey();
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     private SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    private SecretKey deriveSigningKey() {
         // For HMAC-SHA256, we need at least 256 bits (32 bytes)
         // If the secret is shorter, we'll use SHA-256 to hash it to get a proper key
         byte[] keyBytes = secret.getBytes();
@@ -42,14 +58,7 @@ public class JwtTokenUtil {
     }
 
     public String extractUsername(String token) {
-        try {
-            String username = extractClaim(token, Claims::getSubject);
-            System.out.println("JWT Token - Extracted username: " + username);
-            return username;
-        } catch (Exception e) {
-            System.out.println("JWT Token - Error extracting username: " + e.getMessage());
-            throw e;
-        }
+        return extractClaim(token, Claims::getSubject);
     }
 
     public Date extractExpiration(String token) {
@@ -61,23 +70,12 @@ public class JwtTokenUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            System.out.println("JWT Token - Successfully parsed claims for subject: " + claims.getSubject());
-            return claims;
-        } catch (Exception e) {
-            System.out.println("JWT Token - Error parsing claims: " + e.getMessage());
-            throw e;
-        }
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Verifies the signature and expiry of the token and returns its claims. This is the only
+     * place a token is parsed.
+     */
+    Claims extractAllClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -98,6 +96,7 @@ public class JwtTokenUtil {
         String token = Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString()) // Lets a token be revoked before it expires
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
@@ -107,13 +106,20 @@ public class JwtTokenUtil {
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        boolean isValid = (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-        System.out.println("JWT Token validation - Username from token: " + username);
-        System.out.println("JWT Token validation - Username from userDetails: " + userDetails.getUsername());
-        System.out.println("JWT Token validation - Token expired: " + isTokenExpired(token));
-        System.out.println("JWT Token validation - Is valid: " + isValid);
-        return isValid;
+        try {
+            // Parsing already rejects an expired token, so one parse answers both questions
+            Claims claims = extractAllClaims(token);
+            return claims.getSubject().equals(userDetails.getUsername()) && claims.getExpiration().after(new Date());
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lifetime of access tokens in milliseconds.
+     */
+    public Long getExpiration() {
+        return expiration;
     }
 
     public Long extractUserId(String token) {
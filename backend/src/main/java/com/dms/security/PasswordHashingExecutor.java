@@ -0,0 +1,132 @@
+package com.dms.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on its own threads so that a burst of logins can't take every core
+ * and every request thread.
+ * <p>
+ * There are {@code app.auth.password-hashing.threads} hashing threads (the number of cores by
+ * default) behind a queue of {@code app.auth.password-hashing.queue-capacity}. The request
+ * thread waits for its hash, but when the queue is full it doesn't: the hash is rejected with
+ * a {@link PasswordHashingRejectedException} that carries an estimate of when to retry.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    @Value("${app.auth.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${app.auth.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Counters since startup, and the queue as it is now.
+     */
+    public record Stats(int threads, int activeThreads, int queueDepth, int queueCapacity,
+                        long completed, long rejected, double averageHashMillis,
+                        double maxHashMillis, double averageWaitMillis) {}
+
+    @PostConstruct
+    public void start() {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs {@code hash} on a hashing thread and waits for its result.
+     *
+     * @throws PasswordHashingRejectedException if the queue is full
+     */
+    public <T> T execute(Supplier<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                waitNanos.add(started - submitted);
+                try {
+                    return hash.get();
+                } finally {
+                    long elapsed = System.nanoTime() - started;
+                    hashNanos.add(elapsed);
+                    maxHashNanos.accumulate(elapsed);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds());
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    public Stats stats() {
+        long done = completed.sum();
+        return new Stats(threads, executor.getActiveCount(), executor.getQueue().size(), queueCapacity,
+                done, rejected.sum(),
+                done == 0 ? 0 : hashNanos.sum() / 1e6 / done,
+                maxHashNanos.get() / 1e6,
+                done == 0 ? 0 : waitNanos.sum() / 1e6 / done);
+    }
+
+    /**
+     * Roughly how long the work already queued takes to drain, at least one second.
+     */
+    long retryAfterSeconds() {
+        long done = completed.sum();
+        // BCrypt at the default strength takes on the order of 100ms
+        double averageNanos = done == 0 ? 100_000_000 : (double) hashNanos.sum() / done;
+        double drainNanos = (executor.getQueue().size() + threads) * averageNanos / threads;
+        return Math.max(1, (long) Math.ceil(drainNanos / 1e9));
+    }
+}
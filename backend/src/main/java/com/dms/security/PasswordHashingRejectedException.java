@@ -0,0 +1,19 @@
+package com.dms.security;
+
+/**
+ * Thrown when password hashing is already running at capacity and the request should be
+ * retried after {@link #getRetryAfterSeconds()}.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(long retryAfterSeconds) {
+        super("Too many concurrent logins, retry in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
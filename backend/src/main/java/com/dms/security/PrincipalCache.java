@@ -0,0 +1,81 @@
+package com.dms.security;
+
+import com.dms.entity.User;
+import com.dms.repository.jpa.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Authenticated users by id, so that a request with a verified token doesn't need a database
+ * round-trip to find its principal.
+ * <p>
+ * Entries live for {@code app.auth.principal-cache.ttl-ms} and at most
+ * {@code app.auth.principal-cache.max-size} users are kept. {@link com.dms.service.UserService}
+ * invalidates a user whenever it changes one, so the TTL only bounds how long changes made
+ * elsewhere, such as on another instance, take to show.
+ */
+@Component
+public class PrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.auth.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${app.auth.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<Long, Entry> principals = new ConcurrentHashMap<>();
+    // Bumped by every invalidation; a load that overlapped one doesn't cache what it read
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private record Entry(User user, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    public Optional<User> get(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = principals.get(userId);
+        if (entry != null) {
+            if (!entry.isExpired(now)) {
+                return Optional.of(entry.user());
+            }
+            principals.remove(userId, entry);
+        }
+
+        long generation = invalidations.get();
+        Optional<User> user = userRepository.findById(userId);
+        if (user.isPresent() && invalidations.get() == generation) {
+            if (principals.size() >= maxSize) {
+                principals.values().removeIf(cached -> cached.isExpired(now));
+            }
+            if (principals.size() < maxSize) {
+                principals.put(userId, new Entry(user.get(), now + ttlMs));
+                if (invalidations.get() != generation) {
+                    principals.remove(userId);
+                }
+            }
+        }
+        return user;
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            invalidations.incrementAndGet();
+            principals.remove(userId);
+        }
+    }
+
+    int size() {
+        return principals.size();
+    }
+}
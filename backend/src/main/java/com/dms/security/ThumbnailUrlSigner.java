@@ -0,0 +1,85 @@
+package com.dms.security;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Signs thumbnail URLs so that an {@code <img>} can load them without a bearer token.
+ * <p>
+ * The signature is an HMAC over the user, the document, the thumbnail version and the day the
+ * URL was issued. Within a day a URL stays the same however often the access token is renewed,
+ * so the browser can cache it; after the following day it is rejected, which bounds how long a
+ * URL outlives a logout or revoked sessions. It only stands in for the user's identity: the
+ * thumbnail endpoint still checks that the user can see the document.
+ */
+@Component
+public class ThumbnailUrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    // 128 bits of the MAC are plenty for a URL parameter
+    private static final int SIGNATURE_BYTES = 16;
+
+    @Value("${app.thumbnail.url-secret:${jwt.secret}}")
+    private String secret;
+
+    private Clock clock = Clock.systemUTC();
+
+    private SecretKeySpec key;
+
+    @PostConstruct
+    public void init() {
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    /**
+     * The day URLs signed now are issued on, in days since the epoch (UTC).
+     */
+    public long currentDay() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    public String sign(Long userId, String documentId, int thumbnailVersion, long day) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac(userId, documentId, thumbnailVersion, day));
+    }
+
+    /**
+     * Checks a signature issued today or yesterday, so a URL handed out just before midnight
+     * still works for a full day.
+     */
+    public boolean verify(Long userId, String documentId, int thumbnailVersion, long day, String signature) {
+        long today = currentDay();
+        if (day != today && day != today - 1) {
+            return false;
+        }
+        byte[] presented;
+        try {
+            presented = Base64.getUrlDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(mac(userId, documentId, thumbnailVersion, day), presented);
+    }
+
+    private byte[] mac(Long userId, String documentId, int thumbnailVersion, long day) {
+        try {
+            // Mac instances aren't thread-safe and are cheap to create
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] full = mac.doFinal((userId + ":" + documentId + ":" + thumbnailVersion + ":" + day).getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(full, SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.dms.security;
+
+import com.dms.entity.RevokedToken;
+import com.dms.repository.jpa.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Access tokens revoked before they expire, by token id ({@code jti}).
+ * <p>
+ * Revocations are stored in the {@code revoked_tokens} table and mirrored into an in-memory
+ * {@link BloomFilter}. A token whose id isn't in the filter is certainly not revoked, which is
+ * the answer for practically every request, without touching the database. Only a filter hit,
+ * a real revocation or the occasional false positive, is confirmed against the table.
+ * <p>
+ * The filter is built from the table at startup and rebuilt every
+ * {@code jwt.revocation.rebuild-interval-ms}, which drops tokens that have expired in the
+ * meantime and picks up revocations made by other instances. Until the first build has
+ * finished, every check goes to the table.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.revocation.expected-revocations:10000}")
+    private long expectedRevocations;
+
+    @Value("${jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile boolean loaded;
+    // Ids revoked while a rebuild is reading the table, added to the new filter before the swap
+    private List<String> revokedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Thread thread = new Thread(this::rebuild, "token-revocation-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:600000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            // Tokens issued before token ids can't be revoked; they expire on their own
+            return false;
+        }
+        BloomFilter current = filter;
+        if (loaded && current != null && !current.mightContain(tokenId)) {
+            return false;
+        }
+        return revokedTokenRepository.existsById(tokenId);
+    }
+
+    /**
+     * Revokes an access token until it expires.
+     */
+    public void revoke(String tokenId, Long userId, LocalDateTime expiresAt) {
+        if (tokenId == null || !expiresAt.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        revokedTokenRepository.save(new RevokedToken(tokenId, userId, expiresAt));
+        synchronized (this) {
+            if (filter != null) {
+                filter.add(tokenId);
+            }
+            if (revokedDuringRebuild != null) {
+                revokedDuringRebuild.add(tokenId);
+            }
+        }
+    }
+
+    void rebuild() {
+        synchronized (this) {
+            revokedDuringRebuild = new ArrayList<>();
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            revokedTokenRepository.deleteExpired(now);
+            List<String> tokenIds = revokedTokenRepository.findUnexpiredTokenIds(now);
+            // Room for twice the current revocations before the false positive rate degrades
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, tokenIds.size() * 2L), falsePositiveRate);
+            tokenIds.forEach(rebuilt::add);
+            synchronized (this) {
+                revokedDuringRebuild.forEach(rebuilt::add);
+                filter = rebuilt;
+                loaded = true;
+            }
+            logger.debug("Rebuilt the token revocation filter with {} revoked tokens", tokenIds.size());
+        } catch (RuntimeException e) {
+            logger.error("Rebuilding the token revocation filter failed; revocation checks use the database", e);
+        } finally {
+            synchronized (this) {
+                revokedDuringRebuild = null;
+            }
+        }
+    }
+}
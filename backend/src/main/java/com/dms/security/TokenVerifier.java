@@ -0,0 +1,85 @@
+package com.dms.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies bearer tokens for the authentication filter.
+ * <p>
+ * A token is parsed and its HMAC checked once. The claims the filter needs are then kept in a
+ * bounded cache keyed by the exact token string until the token expires, so a client that sends
+ * the same token with every request pays for verification once. A cache entry can only be hit
+ * by the very token that was verified; any change to it misses and gets verified in full.
+ */
+@Component
+public class TokenVerifier {
+
+    @Autowired
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private int maxCachedTokens;
+
+    private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    /**
+     * The claims of a token whose signature and expiry have been checked.
+     */
+    public record VerifiedToken(String tokenId, String username, Long userId, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+
+    /**
+     * Returns the claims of a valid token. Invalid, expired and revoked tokens throw a
+     * {@link JwtException}.
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(token);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return checkNotRevoked(cached);
+            }
+            verified.remove(token, cached);
+        }
+
+        Claims claims = jwtTokenUtil.extractAllClaims(token);
+        VerifiedToken result = checkNotRevoked(new VerifiedToken(claims.getId(), claims.getSubject(),
+                claims.get("userId", Long.class), claims.getExpiration().getTime()));
+        if (verified.size() >= maxCachedTokens) {
+            evictExpired(now);
+        }
+        // When the cache is full of live tokens the token simply isn't cached
+        if (verified.size() < maxCachedTokens) {
+            verified.put(token, result);
+        }
+        return result;
+    }
+
+    private VerifiedToken checkNotRevoked(VerifiedToken token) {
+        // Checked on cache hits too, so a revocation takes effect on the next request
+        if (revocationList.isRevoked(token.tokenId())) {
+            throw new JwtException("Token has been revoked");
+        }
+        return token;
+    }
+
+    int cachedTokens() {
+        return verified.size();
+    }
+
+    private void evictExpired(long now) {
+        verified.values().removeIf(token -> token.isExpired(now));
+    }
+}
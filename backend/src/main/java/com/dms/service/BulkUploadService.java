@@ -0,0 +1,414 @@
+package com.dms.service;
+
+import com.dms.dto.BulkUploadResult;
+import com.dms.entity.Document;
+import com.dms.entity.TextStatus;
+import com.dms.entity.ThumbnailStatus;
+import com.dms.entity.User;
+import com.dms.service.access.AccessControlCache;
+import com.dms.service.search.SearchIndex;
+import com.dms.service.search.TextExtractionWorker;
+import com.dms.service.storage.ContentBlobService;
+import com.dms.service.storage.StoredContent;
+import com.dms.service.thumbnail.ThumbnailJobWorker;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Uploads many files in one request, either as separate multipart parts or packed in ZIP
+ * archives that are expanded on the server.
+ * <p>
+ * The content of each file is streamed into the content store on a bounded executor of
+ * {@code app.bulk-upload.workers} threads; once its queue is full the request thread ingests
+ * files itself, which throttles a request that submits faster than the store can take. The
+ * metadata of ingested files is written with one unordered bulk insert per
+ * {@code app.bulk-upload.insert-batch-size} files, and thumbnail and text extraction jobs are
+ * enqueued per batch as well. Every file produces exactly one {@link BulkUploadResult}, and a
+ * file that fails doesn't affect the others.
+ */
+@Service
+public class BulkUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkUploadService.class);
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ContentBlobService contentBlobService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private AccessControlCache accessControlCache;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private ThumbnailJobWorker thumbnailJobWorker;
+
+    @Autowired
+    private TextExtractionWorker textExtractionWorker;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.file.max-file-size}")
+    private Long maxFileSize;
+
+    @Value("${app.bulk-upload.workers:4}")
+    private int workers;
+
+    @Value("${app.bulk-upload.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${app.bulk-upload.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    @Value("${app.bulk-upload.max-files:5000}")
+    private int maxFiles;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Content of one file that is stored, or the reason it couldn't be.
+     */
+    private record Ingested(String originalFilename, String uniqueFilename, StoredContent stored, String error) {}
+
+    /**
+     * Opens the content of one file; called on an ingest thread.
+     */
+    private interface Source {
+        InputStream open() throws IOException;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bulk-upload-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Uploads all files, passing the result of each to {@code results} on the calling thread
+     * as soon as it is known.
+     */
+    public void upload(List<MultipartFile> files, boolean expandArchives, Long userId, String description,
+                       List<String> tags, boolean isPublic, List<Long> allowedUsers,
+                       Consumer<BulkUploadResult> results) throws IOException {
+        User user = userService.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Batch batch = new Batch(user, description, tags, isPublic, allowedUsers, results);
+        List<Closeable> archives = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                if (expandArchives && isZip(file)) {
+                    expand(file, batch, archives);
+                } else if (checkPart(file, batch)) {
+                    batch.submit(file.getOriginalFilename(), file.getContentType(), file::getInputStream);
+                }
+            }
+            batch.finish();
+        } finally {
+            for (Closeable archive : archives) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    logger.debug("Could not clean up an expanded archive: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean checkPart(MultipartFile file, Batch batch) {
+        String filename = file.getOriginalFilename();
+        try {
+            if (file.isEmpty()) {
+                throw new RuntimeException("File is empty");
+            }
+            if (file.getSize() > maxFileSize) {
+                throw new RuntimeException("File size exceeds maximum allowed size");
+            }
+            documentService.validateFilename(filename);
+            return true;
+        } catch (RuntimeException e) {
+            batch.results.accept(BulkUploadResult.failed(filename, e.getMessage()));
+            return false;
+        }
+    }
+
+    /**
+     * A ZIP has its directory at the end, so the archive is spooled to a temporary file first;
+     * its entries are then inflated straight into the content store, several at a time.
+     */
+    private void expand(MultipartFile file, Batch batch, List<Closeable> archives) throws IOException {
+        Path spooled = Files.createTempFile("bulk-upload-", ".zip");
+        archives.add(() -> Files.deleteIfExists(spooled));
+        ZipFile zip;
+        try {
+            file.transferTo(spooled);
+            zip = new ZipFile(spooled.toFile());
+        } catch (IOException e) {
+            batch.results.accept(BulkUploadResult.failed(file.getOriginalFilename(), "Not a readable ZIP archive: " + e.getMessage()));
+            return;
+        }
+        // Closed after all of its entries have been ingested, before the spooled file is deleted
+        archives.add(archives.size() - 1, zip);
+
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+            String filename = name.substring(name.lastIndexOf('/') + 1);
+            // Folders and the metadata macOS adds to archives are not documents
+            if (entry.isDirectory() || filename.isEmpty() || filename.startsWith(".") || name.startsWith("__MACOSX/")) {
+                continue;
+            }
+            try {
+                if (entry.getSize() > maxFileSize) {
+                    throw new RuntimeException("File size exceeds maximum allowed size");
+                }
+                documentService.validateFilename(filename);
+            } catch (RuntimeException e) {
+                batch.results.accept(BulkUploadResult.failed(name, e.getMessage()));
+                continue;
+            }
+            // The declared size of an entry can't be trusted; the pipeline enforces the limit on the inflated bytes
+            batch.submit(filename, null, () -> zip.getInputStream(entry));
+        }
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String filename = file.getOriginalFilename();
+        return filename != null && filename.toLowerCase().endsWith(".zip");
+    }
+
+    /**
+     * State of one bulk upload. Only touched from the request thread; ingest threads just
+     * return their {@link Ingested} through the completion service.
+     */
+    private final class Batch {
+        private final User user;
+        private final String description;
+        private final List<String> tags;
+        private final boolean isPublic;
+        private final List<Long> allowedUsers;
+        private final Consumer<BulkUploadResult> results;
+
+        private final CompletionService<Ingested> completion = new ExecutorCompletionService<>(executor);
+        private final List<Ingested> ingested = new ArrayList<>();
+        private int submitted;
+        private int completed;
+        private int created;
+        private String firstCreatedId;
+        private String firstCreatedName;
+
+        private Batch(User user, String description, List<String> tags, boolean isPublic,
+                      List<Long> allowedUsers, Consumer<BulkUploadResult> results) {
+            this.user = user;
+            this.description = description;
+            this.tags = tags;
+            this.isPublic = isPublic;
+            this.allowedUsers = allowedUsers;
+            this.results = results;
+        }
+
+        void submit(String originalFilename, String declaredContentType, Source source) {
+            if (submitted >= maxFiles) {
+                results.accept(BulkUploadResult.failed(originalFilename, "More than " + maxFiles + " files in one bulk upload"));
+                return;
+            }
+            String uniqueFilename = documentService.uniqueFilename(originalFilename);
+            completion.submit(() -> {
+                try (InputStream in = source.open()) {
+                    StoredContent stored = contentBlobService.ingest(in, uniqueFilename, declaredContentType);
+                    return new Ingested(originalFilename, uniqueFilename, stored, null);
+                } catch (Exception e) {
+                    return new Ingested(originalFilename, uniqueFilename, null, e.getMessage());
+                }
+            });
+            submitted++;
+            // Hand back what has finished in the meantime, without waiting
+            Future<Ingested> done;
+            while ((done = completion.poll()) != null) {
+                collect(done);
+            }
+        }
+
+        void finish() {
+            try {
+                while (completed < submitted) {
+                    collect(completion.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Bulk upload interrupted");
+            } finally {
+                insert();
+            }
+            notifyAllowedUsers();
+        }
+
+        private void collect(Future<Ingested> done) {
+            completed++;
+            Ingested result;
+            try {
+                result = done.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("Bulk upload interrupted", e);
+            }
+            if (result.error() != null) {
+                results.accept(BulkUploadResult.failed(result.originalFilename(), result.error()));
+                return;
+            }
+            ingested.add(result);
+            if (ingested.size() >= insertBatchSize) {
+                insert();
+            }
+        }
+
+        /**
+         * Writes the metadata of everything ingested so far with one unordered bulk insert.
+         * Documents the insert rejects give their content reference back.
+         */
+        private void insert() {
+            if (ingested.isEmpty()) {
+                return;
+            }
+            List<Document> documents = new ArrayList<>(ingested.size());
+            for (Ingested file : ingested) {
+                Document document = documentService.newDocument(file.stored(), file.uniqueFilename(), file.originalFilename(),
+                        user, description, tags, isPublic, allowedUsers);
+                // Assigned up front: a bulk insert doesn't write generated ids or versions back
+                document.setId(new ObjectId().toHexString());
+                document.setLockVersion(0L);
+                documents.add(document);
+            }
+
+            Set<Integer> rejected = new HashSet<>();
+            String insertError = null;
+            try {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Document.class);
+                bulk.insert(documents);
+                bulk.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    rejected.add(error.getIndex());
+                }
+                insertError = e.getMessage();
+            } catch (RuntimeException e) {
+                for (int i = 0; i < documents.size(); i++) {
+                    rejected.add(i);
+                }
+                insertError = e.getMessage();
+            }
+
+            List<Document> saved = new ArrayList<>(documents.size());
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                if (rejected.contains(i)) {
+                    contentBlobService.release(document.getChecksum(), document.getContentRef());
+                    results.accept(BulkUploadResult.failed(document.getOriginalFilename(), "Saving the document failed: " + insertError));
+                } else {
+                    saved.add(document);
+                }
+            }
+            ingested.clear();
+            if (saved.isEmpty()) {
+                return;
+            }
+
+            documentService.recordVersions(saved, user);
+            List<String> thumbnails = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            for (Document document : saved) {
+                accessControlCache.put(document);
+                searchIndex.index(document);
+                if (document.getThumbnailStatus() == ThumbnailStatus.PENDING) {
+                    thumbnails.add(document.getId());
+                }
+                if (document.getTextStatus() == TextStatus.PENDING) {
+                    texts.add(document.getId());
+                }
+            }
+            thumbnailJobWorker.enqueueAll(thumbnails);
+            textExtractionWorker.enqueueAll(texts);
+
+            for (Document document : saved) {
+                if (created++ == 0) {
+                    firstCreatedId = document.getId();
+                    firstCreatedName = document.getOriginalFilename();
+                }
+                results.accept(BulkUploadResult.created(document.getOriginalFilename(), document.getId(), document.getFileSize()));
+            }
+        }
+
+        /**
+         * One notification per recipient for the whole upload rather than one per file.
+         */
+        private void notifyAllowedUsers() {
+            if (allowedUsers == null || created == 0) {
+                return;
+            }
+            String msg = created == 1
+                    ? String.format("%s shared the document '%s' with you", user.getUsername(), firstCreatedName)
+                    : String.format("%s shared %d documents with you", user.getUsername(), created);
+            for (Long recipientId : allowedUsers) {
+                if (!Objects.equals(recipientId, user.getId())) {
+                    notificationService.createNotification(recipientId, user.getId(), msg, created == 1 ? firstCreatedId : null);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.dms.service;
+
+import com.dms.entity.Document;
+import com.dms.repository.mongo.DocumentRepository;
+import com.dms.service.access.AccessControlCache;
+import com.dms.service.search.SearchIndex;
+import com.dms.service.storage.ContentStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a set of documents as one ZIP archive.
+ * <p>
+ * The selection is resolved and access-checked as a whole before the first byte is written,
+ * so a request either gets every document it asked for or an error. Content is then copied
+ * from the store into a {@link ZipOutputStream} on the response in fixed-size chunks, so memory
+ * use does not depend on the size of the archive. Formats that are compressed already are
+ * written without compression rather than deflated again.
+ */
+@Service
+public class DocumentArchiveService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Deflating these costs CPU and saves next to nothing
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "application/zip", "application/x-zip-compressed", "application/x-rar-compressed",
+            "application/vnd.rar", "application/x-7z-compressed", "application/gzip",
+            "image/jpeg", "image/png", "image/gif", "image/webp");
+    private static final List<String> COMPRESSED_PREFIXES = List.of(
+            "video/", "audio/", "application/vnd.openxmlformats-officedocument.");
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private AccessControlCache accessControlCache;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Value("${app.archive.max-documents:1000}")
+    private int maxDocuments;
+
+    /**
+     * Resolves the documents to archive, in the order requested or by relevance for a query.
+     * Fails if any requested document is missing or not accessible to the user.
+     */
+    public List<Document> resolve(List<String> documentIds, String query, Long userId) {
+        List<String> ids;
+        if (documentIds != null && !documentIds.isEmpty()) {
+            ids = new ArrayList<>(new LinkedHashSet<>(documentIds));
+        } else if (query != null && !query.isBlank()) {
+            // Search hits are already limited to what the user can see
+            Slice<SearchIndex.Hit> hits = searchIndex.searchAfter(query, userId, null, maxDocuments);
+            if (hits.hasNext()) {
+                // Rather than an archive that silently lacks some of the matches
+                throw new RuntimeException("An archive can hold at most " + maxDocuments + " documents, narrow the query");
+            }
+            ids = hits.getContent().stream()
+                    .map(SearchIndex.Hit::id)
+                    .collect(Collectors.toList());
+        } else {
+            throw new RuntimeException("Either documentIds or query is required");
+        }
+        if (ids.size() > maxDocuments) {
+            throw new RuntimeException("An archive can hold at most " + maxDocuments + " documents");
+        }
+
+        Map<String, Document> found = documentRepository.findMetadataByIdIn(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        List<Document> documents = new ArrayList<>(ids.size());
+        List<String> unavailable = new ArrayList<>();
+        try (AccessControlCache.Reader access = accessControlCache.reader(userId)) {
+            for (String id : ids) {
+                Document document = found.get(id);
+                Boolean cached = document != null && accessControlCache.isLoaded() ? access.canAccess(id) : null;
+                boolean allowed = document != null && (cached != null ? cached : document.canAccess(userId));
+                if (allowed) {
+                    documents.add(document);
+                } else {
+                    // Not telling missing and forbidden apart, as for single documents
+                    unavailable.add(id);
+                }
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            throw new RuntimeException("Documents not found: " + String.join(", ", unavailable));
+        }
+        return documents;
+    }
+
+    public void write(List<Document> documents, OutputStream out) throws IOException {
+        Set<String> names = new HashSet<>();
+        Map<String, Integer> duplicates = new HashMap<>();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Document document : documents) {
+                ZipEntry entry = new ZipEntry(entryName(document, names, duplicates));
+                if (document.getLastModified() != null) {
+                    entry.setLastModifiedTime(FileTime.from(document.getLastModified().atZone(ZoneId.systemDefault()).toInstant()));
+                }
+                // Formats that are compressed already aren't deflated again. Unlike STORED, a
+                // DEFLATED entry at level 0 needs no CRC up front, so the content is read once.
+                entry.setMethod(ZipEntry.DEFLATED);
+                zip.setLevel(isCompressed(document.getContentType()) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                try (InputStream in = open(document)) {
+                    zip.putNextEntry(entry);
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        zip.write(buffer, 0, read);
+                    }
+                    zip.closeEntry();
+                }
+                documentService.incrementDownloadCount(document.getId());
+            }
+        }
+    }
+
+    private InputStream open(Document document) throws IOException {
+        if (document.getContentRef() != null) {
+            return contentStorageService.open(document.getContentRef());
+        }
+        // Legacy inline content was left out of the metadata query
+        Document full = documentService.getDocumentById(document.getId())
+                .orElseThrow(() -> new FileNotFoundException("Document not found"));
+        return documentService.openContent(full);
+    }
+
+    /**
+     * The original filename, without any path, made unique within the archive.
+     */
+    private static String entryName(Document document, Set<String> names, Map<String, Integer> duplicates) {
+        String name = document.getOriginalFilename() != null ? document.getOriginalFilename() : document.getId();
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            name = document.getId();
+        }
+        String candidate = name;
+        while (!names.add(candidate)) {
+            int n = duplicates.merge(name, 2, (previous, one) -> previous + 1);
+            int dot = name.lastIndexOf('.');
+            candidate = dot > 0
+                    ? name.substring(0, dot) + " (" + n + ")" + name.substring(dot)
+                    : name + " (" + n + ")";
+        }
+        return candidate;
+    }
+
+    static boolean isCompressed(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).trim();
+        }
+        return COMPRESSED_TYPES.contains(type) || COMPRESSED_PREFIXES.stream().anyMatch(type::startsWith);
+    }
+}
@@ -0,0 +1,202 @@
+package com.dms.service;
+
+import com.dms.entity.Document;
+import com.dms.entity.DocumentJob;
+import com.dms.repository.mongo.DocumentJobRepository;
+import com.dms.repository.mongo.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for background stages that process one document per job.
+ * <p>
+ * Jobs are persisted in the {@code document_jobs} collection so pending work survives a
+ * restart. Subclasses call {@link #dispatch()} from a scheduled method; it claims due jobs of
+ * the stage's type with an atomic find-and-modify and hands them to a bounded executor.
+ * Claimed jobs carry a lease so work abandoned by a crashed node is picked up again. Failures
+ * are retried with exponential backoff up to {@code <prefix>.max-attempts}.
+ * <p>
+ * Settings are read from the stage's property prefix: {@code workers} (0 = one per CPU core),
+ * {@code queue-capacity}, {@code max-attempts}, {@code retry-backoff-ms} and {@code lease-ms}.
+ */
+public abstract class DocumentJobWorker {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    protected MongoTemplate mongoTemplate;
+
+    @Autowired
+    protected DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentJobRepository documentJobRepository;
+
+    @Autowired
+    private Environment environment;
+
+    private final DocumentJob.Type type;
+    private final String propertyPrefix;
+
+    private int maxAttempts;
+    private long retryBackoffMs;
+    private long leaseMs;
+    private ThreadPoolExecutor executor;
+
+    protected DocumentJobWorker(DocumentJob.Type type, String propertyPrefix) {
+        this.type = type;
+        this.propertyPrefix = propertyPrefix;
+    }
+
+    /**
+     * Does the work for one document. Throwing marks the attempt as failed.
+     */
+    protected abstract void process(Document document) throws Exception;
+
+    /**
+     * Called once a job has used up all of its attempts.
+     */
+    protected abstract void onFailure(Document document, Exception lastError);
+
+    @PostConstruct
+    public void start() {
+        int workers = environment.getProperty(propertyPrefix + ".workers", Integer.class, 0);
+        int queueCapacity = environment.getProperty(propertyPrefix + ".queue-capacity", Integer.class, 64);
+        maxAttempts = environment.getProperty(propertyPrefix + ".max-attempts", Integer.class, 3);
+        retryBackoffMs = environment.getProperty(propertyPrefix + ".retry-backoff-ms", Long.class, 10000L);
+        leaseMs = environment.getProperty(propertyPrefix + ".lease-ms", Long.class, 300000L);
+
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        String threadName = type.name().toLowerCase().replace('_', '-') + "-worker-";
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, threadName + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            // Unfinished jobs keep their lease and are reclaimed after it expires
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Persists a job for the document and starts it right away when a worker is free.
+     */
+    public void enqueue(String documentId) {
+        DocumentJob job = documentJobRepository.save(new DocumentJob(type, documentId));
+        if (executor.getQueue().remainingCapacity() > 0) {
+            DocumentJob claimed = claim(Criteria.where("id").is(job.getId()).and("status").is(DocumentJob.Status.PENDING));
+            if (claimed != null) {
+                submit(claimed);
+            }
+        }
+    }
+
+    /**
+     * Persists jobs for many documents with one insert, then starts as many as the executor
+     * has room for; the rest are picked up by the regular dispatch.
+     */
+    public void enqueueAll(List<String> documentIds) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+        mongoTemplate.insert(documentIds.stream().map(id -> new DocumentJob(type, id)).toList(), DocumentJob.class);
+        dispatch();
+    }
+
+    /**
+     * Claims due jobs until the executor queue is full.
+     */
+    protected void dispatch() {
+        while (executor.getQueue().remainingCapacity() > 0) {
+            LocalDateTime now = LocalDateTime.now();
+            DocumentJob job = claim(new Criteria().andOperator(
+                    Criteria.where("type").is(type),
+                    new Criteria().orOperator(
+                            Criteria.where("status").is(DocumentJob.Status.PENDING).and("nextAttemptAt").lte(now),
+                            Criteria.where("status").is(DocumentJob.Status.RUNNING).and("leaseUntil").lt(now))));
+            if (job == null) {
+                return;
+            }
+            submit(job);
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private DocumentJob claim(Criteria criteria) {
+        Query query = new Query(criteria).with(Sort.by("nextAttemptAt"));
+        Update update = new Update()
+                .set("status", DocumentJob.Status.RUNNING)
+                .set("leaseUntil", LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), DocumentJob.class);
+    }
+
+    private void submit(DocumentJob job) {
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // Saturated; hand the job back to the poller
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(job.getId())),
+                    new Update().set("status", DocumentJob.Status.PENDING).unset("leaseUntil"), DocumentJob.class);
+        }
+    }
+
+    private void run(DocumentJob job) {
+        Document document = documentRepository.findMetadataById(job.getDocumentId()).orElse(null);
+        if (document == null) {
+            documentJobRepository.deleteById(job.getId());
+            return;
+        }
+
+        try {
+            process(document);
+            documentJobRepository.deleteById(job.getId());
+        } catch (Exception e) {
+            int attempts = job.getAttempts() + 1;
+            logger.warn("{} attempt {} for document {} failed: {}", type, attempts, document.getId(), e.getMessage());
+            Update update = new Update()
+                    .set("attempts", attempts)
+                    .set("lastError", String.valueOf(e.getMessage()))
+                    .unset("leaseUntil");
+            if (attempts >= maxAttempts) {
+                update.set("status", DocumentJob.Status.FAILED);
+                onFailure(document, e);
+            } else {
+                long backoff = retryBackoffMs * (1L << (attempts - 1));
+                update.set("status", DocumentJob.Status.PENDING)
+                        .set("nextAttemptAt", LocalDateTime.now().plus(Duration.ofMillis(backoff)));
+            }
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(job.getId())), update, DocumentJob.class);
+        }
+    }
+}
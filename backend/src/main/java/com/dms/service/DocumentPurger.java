@@ -0,0 +1,239 @@
+package com.dms.service;
+
+import com.dms.entity.DocumentVersion;
+import com.dms.service.storage.ContentBlobService;
+import com.dms.service.storage.ContentStorageService;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hard-deletes documents that have been soft-deleted for longer than
+ * {@code app.purge.retention-days}.
+ * <p>
+ * Each run works through the due documents in batches of {@code app.purge.batch-size},
+ * pausing {@code app.purge.batch-pause-ms} between batches so that the purge doesn't compete
+ * with regular traffic. A batch first deletes the documents and their version records, then
+ * releases the content they referenced: shared blobs only lose a reference, and thumbnails and
+ * extracted text are deleted outright. Should a run die between the two steps, content leaks
+ * rather than a blob that is still in use being released twice. Batches are claimed with a
+ * lease first, so several instances can purge at the same time. Every run logs the bytes it
+ * reclaimed in the content store and in the {@code documents} collection.
+ */
+@Component
+public class DocumentPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentPurger.class);
+
+    private static final String DOCUMENTS = "documents";
+    private static final String JOBS = "document_jobs";
+
+    // A claim left behind by a purge that died is taken over after this long
+    private static final long CLAIM_LEASE_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ContentBlobService contentBlobService;
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Value("${app.purge.retention-days:30}")
+    private int retentionDays;
+
+    @Value("${app.purge.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.purge.batch-pause-ms:1000}")
+    private long batchPauseMs;
+
+    @Value("${app.purge.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    // The purge sleeps between batches, so it runs off the shared scheduler thread
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "document-purge");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public record PurgeResult(long documents, long storeBytes, long documentBytes) {
+        public long totalBytes() {
+            return storeBytes + documentBytes;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.purge.interval-ms:3600000}", initialDelayString = "${app.purge.initial-delay-ms:60000}")
+    public void scheduledPurge() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                purge();
+            } catch (RuntimeException e) {
+                logger.error("Purging deleted documents failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Purges documents deleted before the retention period, at most
+     * {@code app.purge.max-batches-per-run} batches; the rest waits for the next run.
+     */
+    public PurgeResult purge() {
+        Date cutoff = Date.from(LocalDateTime.now().minusDays(retentionDays).atZone(ZoneId.systemDefault()).toInstant());
+        long documents = 0;
+        long storeBytes = 0;
+        long documentBytes = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Document> candidates = findCandidates(cutoff);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            PurgeResult result = purgeBatch(candidates);
+            documents += result.documents();
+            storeBytes += result.storeBytes();
+            documentBytes += result.documentBytes();
+            if (candidates.size() < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        PurgeResult total = new PurgeResult(documents, storeBytes, documentBytes);
+        if (documents > 0) {
+            logger.info("Purged {} deleted documents, reclaiming {} bytes of content and {} bytes of document records",
+                    documents, storeBytes, documentBytes);
+        }
+        return total;
+    }
+
+    /**
+     * Reads only what the purge needs; the size of each record, legacy inline content
+     * included, is computed by the server.
+     */
+    private List<Document> findCandidates(Date cutoff) {
+        Document match = new Document("is_deleted", true)
+                .append("deleted_at", new Document("$lt", cutoff))
+                .append("purge_lease_until", new Document("$not", new Document("$gte", new Date())));
+        Document project = new Document("content_ref", 1)
+                .append("checksum_sha256", 1)
+                .append("version", 1)
+                .append("thumbnail_renditions", 1)
+                .append("text_ref", 1)
+                .append("record_bytes", new Document("$bsonSize", "$$ROOT"));
+        return mongoTemplate.getCollection(DOCUMENTS).aggregate(List.of(
+                new Document("$match", match),
+                new Document("$limit", batchSize),
+                new Document("$project", project))).into(new ArrayList<>());
+    }
+
+    private PurgeResult purgeBatch(List<Document> candidates) {
+        // Claim the batch first, so that of two instances purging at once only one releases
+        // the content of each document
+        String claim = UUID.randomUUID().toString();
+        Date now = new Date();
+        Date leaseUntil = new Date(now.getTime() + CLAIM_LEASE_MS);
+        List<Object> ids = candidates.stream().map(candidate -> candidate.get("_id")).toList();
+        mongoTemplate.getCollection(DOCUMENTS).updateMany(
+                new Document("_id", new Document("$in", ids)).append("is_deleted", true).append("$or", List.of(
+                        new Document("purge_lease_until", new Document("$exists", false)),
+                        new Document("purge_lease_until", new Document("$lt", now)))),
+                new Document("$set", new Document("purge_claim", claim).append("purge_lease_until", leaseUntil)));
+        Set<Object> claimed = new HashSet<>();
+        mongoTemplate.getCollection(DOCUMENTS)
+                .find(new Document("_id", new Document("$in", ids)).append("purge_claim", claim))
+                .projection(new Document("_id", 1))
+                .forEach(document -> claimed.add(document.get("_id")));
+        candidates = candidates.stream().filter(candidate -> claimed.contains(candidate.get("_id"))).toList();
+        if (candidates.isEmpty()) {
+            return new PurgeResult(0, 0, 0);
+        }
+
+        List<String> documentIds = candidates.stream().map(candidate -> candidate.get("_id").toString()).toList();
+        List<DocumentVersion> versions = mongoTemplate.find(
+                new Query(Criteria.where("documentId").in(documentIds)), DocumentVersion.class);
+        mongoTemplate.getCollection(DOCUMENTS).deleteMany(
+                new Document("_id", new Document("$in", List.copyOf(claimed))).append("purge_claim", claim));
+        mongoTemplate.remove(new Query(Criteria.where("documentId").in(documentIds)), DocumentVersion.class);
+        mongoTemplate.getCollection(JOBS).deleteMany(new Document("document_id", new Document("$in", documentIds)));
+
+        long storeBytes = 0;
+        long documentBytes = 0;
+        Set<String> recorded = new HashSet<>();
+        for (DocumentVersion version : versions) {
+            recorded.add(version.getDocumentId() + "#" + version.getVersionNumber());
+            storeBytes += contentBlobService.release(version.getChecksum(), version.getContentRef());
+        }
+        for (Document candidate : candidates) {
+            Number version = candidate.get("version", Number.class);
+            String currentKey = candidate.get("_id") + "#" + (version != null ? version.intValue() : 1);
+            // A version record takes over the document's reference; without one the document holds it
+            if (!recorded.contains(currentKey)) {
+                storeBytes += contentBlobService.release(candidate.getString("checksum_sha256"), candidate.getString("content_ref"));
+            }
+            Document renditions = candidate.get("thumbnail_renditions", Document.class);
+            if (renditions != null) {
+                for (Map.Entry<String, Object> rendition : renditions.entrySet()) {
+                    storeBytes += deleteExclusive(String.valueOf(rendition.getValue()));
+                }
+            }
+            storeBytes += deleteExclusive(candidate.getString("text_ref"));
+            Number recordBytes = candidate.get("record_bytes", Number.class);
+            documentBytes += recordBytes != null ? recordBytes.longValue() : 0;
+        }
+        return new PurgeResult(candidates.size(), storeBytes, documentBytes);
+    }
+
+    private long deleteExclusive(String contentRef) {
+        if (contentRef == null) {
+            return 0;
+        }
+        long size = 0;
+        try {
+            size = contentStorageService.size(contentRef);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not determine the size of {}: {}", contentRef, e.getMessage());
+        }
+        return contentStorageService.delete(contentRef) ? size : 0;
+    }
+}
@@ -1,24 +1,43 @@
 package com.dms.service;
 
+import com.dms.dto.CursorSlice;
+import com.dms.dto.DocumentSummary;
 import com.dms.entity.Document;
+import com.dms.entity.DocumentVersion;
+import com.dms.entity.TextStatus;
+import com.dms.entity.ThumbnailStatus;
 import com.dms.entity.User;
 import com.dms.repository.mongo.DocumentRepository;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
+import com.dms.repository.mongo.DocumentVersionRepository;
+import com.dms.repository.mongo.KeysetCursor;
+import com.dms.service.access.AccessControlCache;
+import com.dms.service.search.SearchIndex;
+import com.dms.service.search.TextExtractionWorker;
+import com.dms.service.storage.ContentBlobService;
+import com.dms.service.storage.ContentStorageService;
+import com.dms.service.storage.StoredContent;
+import com.dms.service.thumbnail.ThumbnailJobWorker;
+import com.dms.service.thumbnail.ThumbnailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.Base64;
@@ -26,6 +45,11 @@ import java.util.Base64;
 @Service
 public class DocumentService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DocumentService.class);
+
+    // Sort key recorded in search cursors, which order by relevance rather than a stored field
+    private static final String SEARCH_SORT = "_score";
+
     @Autowired
     private DocumentRepository documentRepository;
 
@@ -35,15 +59,42 @@ public class DocumentService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Autowired
+    private ContentBlobService contentBlobService;
+
+    @Autowired
+    private DocumentVersionRepository documentVersionRepository;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ThumbnailJobWorker thumbnailJobWorker;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private AccessControlCache accessControlCache;
+
+    @Autowired
+    private DownloadCounter downloadCounter;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TextExtractionWorker textExtractionWorker;
+
     @Value("${app.file.allowed-extensions}")
     private String allowedExtensions;
 
     @Value("${app.file.max-file-size}")
     private Long maxFileSize;
 
-    private static final int THUMB_MAX_WIDTH = 480;
-    private static final int THUMB_MAX_HEIGHT = 320;
-
     public Document uploadDocument(MultipartFile file, Long userId, String description,
                                  List<String> tags, boolean isPublic, List<Long> allowedUsers) throws IOException {
         // Validate file
@@ -55,40 +106,37 @@ public class DocumentService {
 
         // Generate unique filename
         String originalFilename = file.getOriginalFilename();
-        String fileExtension = getFileExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + "." + fileExtension;
+        String uniqueFilename = uniqueFilename(originalFilename);
 
-        // Convert file to base64
-        byte[] fileBytes = file.getBytes();
-        String base64Content = Base64.getEncoder().encodeToString(fileBytes);
+        // Stream the upload once: size limit, checksum and type sniffing happen while storing,
+        // and bytes that are already stored are shared instead of kept twice
+        StoredContent stored;
+        try (InputStream in = file.getInputStream()) {
+            stored = contentBlobService.ingest(in, uniqueFilename, file.getContentType());
+        }
 
-        // Create document entity
-        Document document = new Document(
-                uniqueFilename,
-                originalFilename,
-                file.getContentType(),
-                file.getSize(),
-                uniqueFilename, // Use filename as filePath for reference
-                base64Content,
-                userId,
-                user.getUsername()
-        );
+        Document document = newDocument(stored, uniqueFilename, originalFilename, user,
+                description, tags, isPublic, allowedUsers);
+        boolean needsThumbnail = document.getThumbnailStatus() == ThumbnailStatus.PENDING;
+        boolean needsText = document.getTextStatus() == TextStatus.PENDING;
 
-        // Generate and set thumbnail (best-effort)
+        Document saved;
         try {
-            String thumbnailBase64 = generateThumbnail(fileBytes, file.getContentType(), originalFilename);
-            document.setThumbnailContent(thumbnailBase64);
-        } catch (Exception ex) {
-            // Ignore thumbnail errors; proceed without breaking upload
-            document.setThumbnailContent(null);
+            saved = documentRepository.save(document);
+        } catch (RuntimeException e) {
+            contentBlobService.release(stored.getChecksum(), stored.getContentRef());
+            throw e;
         }
+        recordVersion(saved, user, null);
 
-        document.setDescription(description);
-        document.setTags(tags);
-        document.setPublic(isPublic);
-        document.setAllowedUsers(allowedUsers);
-
-        Document saved = documentRepository.save(document);
+        accessControlCache.put(saved);
+        searchIndex.index(saved);
+        if (needsThumbnail) {
+            thumbnailJobWorker.enqueue(saved.getId());
+        }
+        if (needsText) {
+            textExtractionWorker.enqueue(saved.getId());
+        }
 
         // Notify allowed users if any were granted access at upload
         if (allowedUsers != null) {
@@ -103,6 +151,46 @@ public class DocumentService {
         return saved;
     }
 
+    /**
+     * Builds the metadata of a new upload whose content has been stored, with background
+     * thumbnail and text extraction marked pending where the content type supports them.
+     */
+    Document newDocument(StoredContent stored, String uniqueFilename, String originalFilename, User user,
+                         String description, List<String> tags, boolean isPublic, List<Long> allowedUsers) {
+        Document document = new Document(
+                uniqueFilename,
+                originalFilename,
+                stored.getContentType(),
+                stored.getSize(),
+                uniqueFilename, // Use filename as filePath for reference
+                stored.getContentRef(),
+                user.getId(),
+                user.getUsername()
+        );
+        document.setChecksum(stored.getChecksum());
+
+        // Thumbnails are rendered in the background once the document is saved
+        boolean needsThumbnail = thumbnailService.supports(stored.getContentType());
+        document.setThumbnailStatus(needsThumbnail ? ThumbnailStatus.PENDING : ThumbnailStatus.NONE);
+        // Text for the search index is extracted in the background as well
+        boolean needsText = textExtractionWorker.supports(stored.getContentType());
+        document.setTextStatus(needsText ? TextStatus.PENDING : TextStatus.NONE);
+
+        document.setDescription(description);
+        document.setTags(tags);
+        document.setPublic(isPublic);
+        document.setAllowedUsers(allowedUsers);
+        document.updateVisibleTo();
+        return document;
+    }
+
+    /**
+     * Name under which new content is stored, keeping the extension of the uploaded name.
+     */
+    String uniqueFilename(String originalFilename) {
+        return UUID.randomUUID().toString() + "." + getFileExtension(originalFilename);
+    }
+
     public Optional<Document> getDocumentById(String documentId) {
         return documentRepository.findByIdAndIsDeletedFalse(documentId);
     }
@@ -111,53 +199,182 @@ public class DocumentService {
         Optional<Document> documentOpt = getDocumentById(documentId);
         if (documentOpt.isPresent()) {
             Document document = documentOpt.get();
-            if (document.canAccess(userId)) {
+            if (accessControlCache.canAccess(userId, document)) {
                 return documentOpt;
             }
         }
         return Optional.empty();
     }
 
-    public Page<Document> getUserDocuments(Long userId, Pageable pageable) {
+    /**
+     * Like {@link #getDocumentByIdForUser} but leaves legacy inline content out of the result.
+     */
+    public Optional<Document> getDocumentMetadataForUser(String documentId, Long userId) {
+        return documentRepository.findMetadataById(documentId).filter(document -> accessControlCache.canAccess(userId, document));
+    }
+
+    /**
+     * Reads a stored thumbnail rendition, falling back to the legacy inline PNG for documents
+     * rendered before renditions existed. Returns null when there is no such thumbnail.
+     */
+    public byte[] readThumbnail(Document document, String renditionKey) throws IOException {
+        Map<String, String> renditions = document.getThumbnailRenditions();
+        if (renditions != null && renditions.containsKey(renditionKey)) {
+            try (InputStream in = contentStorageService.open(renditions.get(renditionKey))) {
+                return in.readAllBytes();
+            }
+        }
+        if (renditions == null && document.getThumbnailContent() != null) {
+            return Base64.getDecoder().decode(document.getThumbnailContent());
+        }
+        return null;
+    }
+
+    public InputStream openContent(Document document) throws IOException {
+        if (document.getContentRef() != null) {
+            return contentStorageService.open(document.getContentRef());
+        }
+        if (document.getFileContent() != null && !document.getFileContent().isEmpty()) {
+            return new ByteArrayInputStream(Base64.getDecoder().decode(document.getFileContent()));
+        }
+        throw new FileNotFoundException("Document has no content");
+    }
+
+    public boolean hasContent(Document document) {
+        return document.getContentRef() != null
+                || (document.getFileContent() != null && !document.getFileContent().isEmpty());
+    }
+
+    public void writeContent(Document document, long position, long count, OutputStream out) throws IOException {
+        if (document.getContentRef() != null) {
+            contentStorageService.transferTo(document.getContentRef(), position, count, out);
+            return;
+        }
+        try (InputStream in = openContent(document)) {
+            in.skipNBytes(position);
+            out.write(in.readNBytes((int) count));
+        }
+    }
+
+    public Page<DocumentSummary> getUserDocuments(Long userId, Pageable pageable) {
         return documentRepository.findUserDocuments(userId, pageable);
     }
 
-    public Page<Document> getPublicDocuments(Pageable pageable) {
+    public Page<DocumentSummary> getPublicDocuments(Pageable pageable) {
         return documentRepository.findPublicDocuments(pageable);
     }
 
-    public Page<Document> getAccessibleDocuments(Long userId, Pageable pageable) {
+    public Page<DocumentSummary> getAccessibleDocuments(Long userId, Pageable pageable) {
         return documentRepository.findAccessibleDocuments(userId, pageable);
     }
 
-    public List<Document> searchDocuments(String searchTerm) {
-        return documentRepository.searchDocuments(searchTerm);
+    public CursorSlice<DocumentSummary> getUserDocuments(Long userId, String sortBy, Sort.Direction direction, String cursor, int size) {
+        return documentRepository.scrollUserDocuments(userId, sortBy, direction, decodeCursor(cursor, sortBy, direction), size);
     }
 
-    public Page<Document> searchDocuments(String searchTerm, Pageable pageable) {
-        return documentRepository.searchDocuments(searchTerm, pageable);
+    public CursorSlice<DocumentSummary> getPublicDocuments(String sortBy, Sort.Direction direction, String cursor, int size) {
+        return documentRepository.scrollPublicDocuments(sortBy, direction, decodeCursor(cursor, sortBy, direction), size);
     }
 
-    public Document updateDocument(String documentId, String description, List<String> tags,
-                                 boolean isPublic, List<Long> allowedUsers, Long userId) {
-        Document document = documentRepository.findByIdAndIsDeletedFalse(documentId)
-                .orElseThrow(() -> new RuntimeException("Document not found"));
+    public CursorSlice<DocumentSummary> getAccessibleDocuments(Long userId, String sortBy, Sort.Direction direction, String cursor, int size) {
+        return documentRepository.scrollAccessibleDocuments(userId, sortBy, direction, decodeCursor(cursor, sortBy, direction), size);
+    }
 
-        // Check if user can modify the document
-        if (!document.getUploadedBy().equals(userId)) {
-            throw new RuntimeException("You can only modify your own documents");
+    private KeysetCursor decodeCursor(String cursor, String sortBy, Sort.Direction direction) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        return after != null ? after.requireSort(sortBy, direction) : null;
+    }
+
+    /**
+     * Ranked search over the documents the user can access. The index supplies the ordered ids
+     * of one page; their summaries are then loaded from MongoDB.
+     */
+    public Page<DocumentSummary> searchDocuments(String searchTerm, Long userId, Pageable pageable) {
+        Page<String> hits = searchIndex.search(searchTerm, userId, pageable);
+        return new PageImpl<>(loadSummaries(hits.getContent()), pageable, hits.getTotalElements());
+    }
+
+    /**
+     * Keyset variant of {@link #searchDocuments}: the cursor carries the score and id of the last
+     * hit, so a page costs the same however far the client has paged.
+     */
+    public CursorSlice<DocumentSummary> searchDocuments(String searchTerm, Long userId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        SearchIndex.Hit afterHit = null;
+        if (after != null) {
+            after.requireSort(SEARCH_SORT, Sort.Direction.DESC);
+            // The cursor comes from the client; its value must be a score
+            if (!(after.value() instanceof Number score) || Float.isNaN(score.floatValue())) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            afterHit = new SearchIndex.Hit(after.id(), score.floatValue());
+        }
+        Slice<SearchIndex.Hit> hits = searchIndex.searchAfter(searchTerm, userId, afterHit, size);
+        List<String> ids = hits.getContent().stream().map(SearchIndex.Hit::id).toList();
+        String nextCursor = null;
+        if (hits.hasNext()) {
+            SearchIndex.Hit last = hits.getContent().get(hits.getNumberOfElements() - 1);
+            nextCursor = new KeysetCursor(SEARCH_SORT, Sort.Direction.DESC, last.score(), last.id()).encode();
         }
+        return new CursorSlice<>(loadSummaries(ids), hits.hasNext(), nextCursor);
+    }
+
+    private List<DocumentSummary> loadSummaries(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, DocumentSummary> byId = new HashMap<>();
+        for (DocumentSummary summary : documentRepository.findSummariesByIdIn(ids)) {
+            byId.put(summary.getId(), summary);
+        }
+        // Keep the index's ranking; ids deleted since they were indexed simply drop out
+        List<DocumentSummary> ordered = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            DocumentSummary summary = byId.get(id);
+            if (summary != null) {
+                ordered.add(summary);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Applies a metadata edit as a field-level update guarded by the document's lock version.
+     * Description, tags and the public flag are only changed when given; allowedUsers is the
+     * complete new list, so null removes all shares. Throws
+     * {@link OptimisticLockingFailureException} when {@code expectedVersion} is stale or another
+     * edit lands between the read and the write.
+     */
+    public Document updateDocument(String documentId, String description, List<String> tags,
+                                 Boolean isPublic, List<Long> allowedUsers, Long userId, Long expectedVersion) {
+        Document document = loadForWrite(documentId, userId, expectedVersion, "You can only modify your own documents");
 
         List<Long> previousAllowed = document.getAllowedUsers() != null ? new ArrayList<>(document.getAllowedUsers()) : new ArrayList<>();
         List<Long> newAllowed = allowedUsers != null ? new ArrayList<>(allowedUsers) : new ArrayList<>();
 
-        document.setDescription(description);
-        document.setTags(tags);
-        document.setPublic(isPublic);
+        Update update = new Update();
+        if (description != null) {
+            document.setDescription(description);
+            update.set("description", description);
+        }
+        if (tags != null) {
+            document.setTags(tags);
+            update.set("tags", tags);
+        }
+        if (isPublic != null) {
+            document.setPublic(isPublic);
+            update.set("isPublic", isPublic);
+        }
         document.setAllowedUsers(newAllowed);
+        document.updateVisibleTo();
         document.updateLastModified();
+        update.set("allowedUsers", newAllowed)
+                .set("visibleTo", document.getVisibleTo())
+                .set("lastModified", document.getLastModified());
 
-        Document saved = documentRepository.save(document);
+        Document saved = applyVersioned(document, update);
+        accessControlCache.put(saved);
+        searchIndex.index(saved);
 
         // Compute newly added recipients and notify them
         Set<Long> previousSet = new HashSet<>(previousAllowed);
@@ -172,37 +389,247 @@ public class DocumentService {
         return saved;
     }
 
-    public void deleteDocument(String documentId, Long userId) {
-        Document document = documentRepository.findByIdAndIsDeletedFalse(documentId)
+    public void deleteDocument(String documentId, Long userId, Long expectedVersion) {
+        Document document = loadForWrite(documentId, userId, expectedVersion, "You can only delete your own documents");
+
+        document.updateLastModified();
+        applyVersioned(document, new Update()
+                .set("isDeleted", true)
+                .set("deletedAt", document.getLastModified())
+                .set("lastModified", document.getLastModified()));
+        accessControlCache.remove(documentId);
+        searchIndex.delete(documentId);
+    }
+
+    private Document loadForWrite(String documentId, Long userId, Long expectedVersion, String notOwnerMessage) {
+        Document document = documentRepository.findMetadataById(documentId)
                 .orElseThrow(() -> new RuntimeException("Document not found"));
 
-        // Check if user can delete the document
+        // Check if user can modify the document
         if (!document.getUploadedBy().equals(userId)) {
-            throw new RuntimeException("You can only delete your own documents");
+            throw new RuntimeException(notOwnerMessage);
         }
+        if (expectedVersion != null && !expectedVersion.equals(document.getLockVersion())) {
+            throw new OptimisticLockingFailureException(
+                    "Document was modified concurrently (expected version " + expectedVersion + ", current " + document.getLockVersion() + ")");
+        }
+        return document;
+    }
 
-        document.setDeleted(true);
-        documentRepository.save(document);
+    /**
+     * Writes only the fields in {@code update} and bumps the lock version, provided the stored
+     * lock version is still the one {@code document} was read with.
+     */
+    private Document applyVersioned(Document document, Update update) {
+        Query query = new Query(Criteria.where("id").is(document.getId())
+                .and("isDeleted").is(false)
+                .and("lockVersion").is(document.getLockVersion()));
+        query.fields().exclude("fileContent");
+        Document updated = mongoTemplate.findAndModify(query, update.inc("lockVersion", 1),
+                FindAndModifyOptions.options().returnNew(true), Document.class);
+        if (updated == null) {
+            throw new OptimisticLockingFailureException("Document was modified concurrently, reload it and try again");
+        }
+        return updated;
     }
 
-    public void incrementDownloadCount(String documentId) {
-        Optional<Document> documentOpt = getDocumentById(documentId);
-        if (documentOpt.isPresent()) {
-            Document document = documentOpt.get();
-            document.incrementDownloadCount();
-            documentRepository.save(document);
+    /**
+     * Uploads new content for an existing document and makes it the current revision. The
+     * previous content stays available as an earlier version, and the document takes the name
+     * of the new file.
+     */
+    public Document uploadVersion(String documentId, MultipartFile file, String comment, Long userId, Long expectedVersion) throws IOException {
+        validateFile(file);
+        Document document = loadForWrite(documentId, userId, expectedVersion, "You can only upload versions of your own documents");
+        User user = userService.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        int current = document.getVersion() != null ? document.getVersion() : 1;
+        recordLegacyVersion(document, current);
+
+        // The new file names the document from now on, so its extension matches the content
+        String originalFilename = file.getOriginalFilename();
+        String uniqueFilename = uniqueFilename(originalFilename);
+        StoredContent stored;
+        try (InputStream in = file.getInputStream()) {
+            stored = contentBlobService.ingest(in, uniqueFilename, file.getContentType());
+        }
+        // The unique (document, version) index turns a concurrent upload of the same number into a conflict
+        DocumentVersion revision;
+        try {
+            revision = documentVersionRepository.insert(new DocumentVersion(documentId, current + 1,
+                    stored.getContentRef(), stored.getChecksum(), stored.getSize(), stored.getContentType(),
+                    originalFilename, userId, user.getUsername(), LocalDateTime.now(), comment));
+        } catch (DuplicateKeyException e) {
+            contentBlobService.release(stored.getChecksum(), stored.getContentRef());
+            throw new OptimisticLockingFailureException("Another version of the document was uploaded concurrently");
+        }
+
+        boolean needsThumbnail = thumbnailService.supports(stored.getContentType());
+        boolean needsText = textExtractionWorker.supports(stored.getContentType());
+        document.updateLastModified();
+        Update update = new Update()
+                .set("contentRef", stored.getContentRef())
+                .set("checksum", stored.getChecksum())
+                .set("fileSize", stored.getSize())
+                .set("contentType", stored.getContentType())
+                .set("filename", uniqueFilename)
+                .set("originalFilename", originalFilename)
+                .set("version", current + 1)
+                .set("thumbnailStatus", needsThumbnail ? ThumbnailStatus.PENDING : ThumbnailStatus.NONE)
+                .set("textStatus", needsText ? TextStatus.PENDING : TextStatus.NONE)
+                .set("lastModified", document.getLastModified())
+                .unset("fileContent");
+        Document saved;
+        try {
+            saved = applyVersioned(document, update);
+        } catch (RuntimeException e) {
+            documentVersionRepository.delete(revision);
+            contentBlobService.release(stored.getChecksum(), stored.getContentRef());
+            throw e;
+        }
+
+        accessControlCache.put(saved);
+        searchIndex.index(saved);
+        if (needsThumbnail) {
+            thumbnailJobWorker.enqueue(saved.getId());
+        }
+        if (needsText) {
+            textExtractionWorker.enqueue(saved.getId());
+        }
+
+        if (saved.getAllowedUsers() != null) {
+            String msg = String.format("%s uploaded version %d of '%s'", user.getUsername(), current + 1, saved.getOriginalFilename());
+            for (Long recipientId : saved.getAllowedUsers()) {
+                if (!Objects.equals(recipientId, userId)) {
+                    notificationService.createNotification(recipientId, userId, msg, saved.getId());
+                }
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Returns the version chain of a document the user can access, newest first.
+     */
+    public List<DocumentVersion> getVersionsForUser(String documentId, Long userId) {
+        Document document = getDocumentMetadataForUser(documentId, userId)
+                .orElseThrow(() -> new RuntimeException("Document not found"));
+        List<DocumentVersion> versions = new ArrayList<>(documentVersionRepository.findByDocumentIdOrderByVersionNumberDesc(documentId));
+        int current = document.getVersion() != null ? document.getVersion() : 1;
+        if (versions.isEmpty() || versions.get(0).getVersionNumber() < current) {
+            versions.add(0, currentVersionOf(document));
+        }
+        return versions;
+    }
+
+    public Optional<DocumentVersion> getVersionForUser(String documentId, int versionNumber, Long userId) {
+        Optional<Document> documentOpt = getDocumentMetadataForUser(documentId, userId);
+        if (documentOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        Document document = documentOpt.get();
+        Optional<DocumentVersion> version = documentVersionRepository.findByDocumentIdAndVersionNumber(documentId, versionNumber);
+        if (version.isEmpty() && Objects.equals(document.getVersion(), versionNumber)) {
+            return Optional.of(currentVersionOf(document));
         }
+        return version;
     }
 
-    public List<Document> getDocumentsByContentType(String contentType) {
+    public void writeVersionContent(DocumentVersion version, long position, long count, OutputStream out) throws IOException {
+        if (version.getContentRef() == null) {
+            // Current revision of a legacy document whose content is still inline
+            Document document = getDocumentById(version.getDocumentId())
+                    .orElseThrow(() -> new FileNotFoundException("Document not found"));
+            writeContent(document, position, count, out);
+            return;
+        }
+        contentStorageService.transferTo(version.getContentRef(), position, count, out);
+    }
+
+    private void recordVersion(Document document, User user, String comment) {
+        DocumentVersion version = currentVersionOf(document);
+        version.setUploadedBy(user.getId());
+        version.setUploadedByUsername(user.getUsername());
+        version.setComment(comment);
+        try {
+            documentVersionRepository.insert(version);
+        } catch (RuntimeException e) {
+            // The document itself still references its content, so nothing is lost
+            logger.warn("Could not record version {} of document {}: {}", version.getVersionNumber(), document.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Records the first version of many new documents with one insert.
+     */
+    void recordVersions(List<Document> documents, User user) {
+        List<DocumentVersion> versions = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            DocumentVersion version = currentVersionOf(document);
+            version.setUploadedBy(user.getId());
+            version.setUploadedByUsername(user.getUsername());
+            versions.add(version);
+        }
+        try {
+            documentVersionRepository.insert(versions);
+        } catch (RuntimeException e) {
+            // As for a single upload, the documents still reference their content themselves
+            logger.warn("Could not record the first version of {} documents: {}", documents.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Documents uploaded before version history have no record of their current content; add
+     * one before that content stops being current. Inline content is moved to the store.
+     */
+    private void recordLegacyVersion(Document document, int current) throws IOException {
+        if (documentVersionRepository.existsByDocumentIdAndVersionNumber(document.getId(), current)) {
+            return;
+        }
+        DocumentVersion version = currentVersionOf(document);
+        if (version.getContentRef() == null) {
+            Document full = getDocumentById(document.getId())
+                    .orElseThrow(() -> new RuntimeException("Document not found"));
+            try (InputStream in = openContent(full)) {
+                StoredContent stored = contentBlobService.ingest(in, document.getFilename(), document.getContentType());
+                version.setContentRef(stored.getContentRef());
+                version.setChecksum(stored.getChecksum());
+                version.setFileSize(stored.getSize());
+            }
+        }
+        try {
+            documentVersionRepository.insert(version);
+        } catch (DuplicateKeyException e) {
+            // Recorded by a concurrent upload in the meantime
+            if (document.getContentRef() == null) {
+                contentBlobService.release(version.getChecksum(), version.getContentRef());
+            }
+        }
+    }
+
+    private DocumentVersion currentVersionOf(Document document) {
+        return new DocumentVersion(document.getId(),
+                document.getVersion() != null ? document.getVersion() : 1,
+                document.getContentRef(), document.getChecksum(), document.getFileSize(), document.getContentType(),
+                document.getOriginalFilename(), document.getUploadedBy(), document.getUploadedByUsername(),
+                document.getLastModified() != null ? document.getLastModified() : document.getUploadDate(), null);
+    }
+
+    public void incrementDownloadCount(String documentId) {
+        // Counted in memory and written back in bulk; see DownloadCounter
+        downloadCounter.increment(documentId);
+    }
+
+    public List<DocumentSummary> getDocumentsByContentType(String contentType) {
         return documentRepository.findByContentType(contentType);
     }
 
-    public List<Document> getDocumentsByTags(List<String> tags) {
+    public List<DocumentSummary> getDocumentsByTags(List<String> tags) {
         return documentRepository.findByTagsIn(tags);
     }
 
-    public List<Document> getDocumentsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+    public List<DocumentSummary> getDocumentsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         return documentRepository.findByUploadDateBetween(startDate, endDate);
     }
 
@@ -211,7 +638,7 @@ public class DocumentService {
     }
 
     public long getPublicDocumentCount() {
-        return documentRepository.countByIsPublicTrueAndIsDeletedFalse();
+        return documentRepository.countPublicDocuments();
     }
 
     private void validateFile(MultipartFile file) {
@@ -223,7 +650,13 @@ public class DocumentService {
             throw new RuntimeException("File size exceeds maximum allowed size");
         }
 
-        String originalFilename = file.getOriginalFilename();
+        validateFilename(file.getOriginalFilename());
+    }
+
+    /**
+     * Checks the name of an upload against the allowed extensions.
+     */
+    void validateFilename(String originalFilename) {
         if (originalFilename == null || originalFilename.isEmpty()) {
             throw new RuntimeException("Invalid filename");
         }
@@ -241,104 +674,4 @@ public class DocumentService {
         }
         return "";
     }
-
-    private String generateThumbnail(byte[] fileBytes, String contentType, String originalFilename) throws Exception {
-        if (contentType == null) return null;
-        if (contentType.startsWith("image/")) {
-            return generateImageThumbnail(fileBytes);
-        }
-        if (contentType.equals("application/pdf")) {
-            return generatePdfThumbnail(fileBytes);
-        }
-        if (contentType.startsWith("video/")) {
-            return generateVideoThumbnail(fileBytes, originalFilename);
-        }
-        // Basic support for common Office docs via LibreOffice -> PDF -> PNG
-        if (contentType.contains("officedocument") || contentType.contains("msword") || contentType.contains("ms-excel") || contentType.contains("ms-powerpoint") || contentType.contains("vnd.openxmlformats")) {
-            return generateOfficeThumbnailViaLibreOffice(fileBytes, originalFilename);
-        }
-        return null;
-    }
-
-    private String generateImageThumbnail(byte[] bytes) throws IOException {
-        try (InputStream in = new ByteArrayInputStream(bytes)) {
-            BufferedImage original = ImageIO.read(in);
-            if (original == null) return null;
-            BufferedImage scaled = scaleImage(original, THUMB_MAX_WIDTH, THUMB_MAX_HEIGHT);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            ImageIO.write(scaled, "png", out);
-            return Base64.getEncoder().encodeToString(out.toByteArray());
-        }
-    }
-
-    private String generatePdfThumbnail(byte[] bytes) throws IOException {
-        try (InputStream in = new ByteArrayInputStream(bytes); PDDocument doc = PDDocument.load(in)) {
-            PDFRenderer renderer = new PDFRenderer(doc);
-            BufferedImage pageImage = renderer.renderImageWithDPI(0, 220); // first page at higher DPI
-            BufferedImage scaled = scaleImage(pageImage, THUMB_MAX_WIDTH, THUMB_MAX_HEIGHT);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            ImageIO.write(scaled, "png", out);
-            return Base64.getEncoder().encodeToString(out.toByteArray());
-        }
-    }
-
-    private String generateVideoThumbnail(byte[] bytes, String originalFilename) throws IOException, InterruptedException {
-        Path tempDir = Files.createTempDirectory("thumb-video-");
-        Path input = tempDir.resolve(originalFilename);
-        Path output = tempDir.resolve("thumb.png");
-        Files.write(input, bytes);
-        ProcessBuilder pb = new ProcessBuilder("ffmpeg", "-y", "-i", input.toString(), "-ss", "00:00:01", "-vframes", "1", "-vf", "scale=480:-1", output.toString());
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
-        p.waitFor();
-        if (Files.exists(output)) {
-            byte[] outBytes = Files.readAllBytes(output);
-            try { Files.deleteIfExists(input); Files.deleteIfExists(output); Files.deleteIfExists(tempDir); } catch (Exception ignored) {}
-            return Base64.getEncoder().encodeToString(outBytes);
-        }
-        try { Files.deleteIfExists(input); Files.deleteIfExists(output); Files.deleteIfExists(tempDir); } catch (Exception ignored) {}
-        return null;
-    }
-
-    private String generateOfficeThumbnailViaLibreOffice(byte[] bytes, String originalFilename) throws IOException, InterruptedException {
-        String safeName = originalFilename != null ? originalFilename : (UUID.randomUUID() + ".bin");
-        Path tempDir = Files.createTempDirectory("thumb-office-");
-        Path input = tempDir.resolve(safeName);
-        Files.write(input, bytes);
-        // Convert to PDF
-        ProcessBuilder pb = new ProcessBuilder("libreoffice", "--headless", "--convert-to", "pdf", "--outdir", tempDir.toString(), input.toString());
-        pb.redirectErrorStream(true);
-        Process p = pb.start();
-        p.waitFor();
-        // Find produced PDF
-        Path pdf = tempDir.resolve(replaceExt(safeName, "pdf"));
-        String result = null;
-        if (Files.exists(pdf)) {
-            byte[] pdfBytes = Files.readAllBytes(pdf);
-            result = generatePdfThumbnail(pdfBytes);
-        }
-        try { Files.walk(tempDir).sorted((a,b)->b.getNameCount()-a.getNameCount()).forEach(path -> { try { Files.deleteIfExists(path); } catch (Exception ignored) {} }); } catch (Exception ignored) {}
-        return result;
-    }
-
-    private static String replaceExt(String name, String newExt) {
-        int i = name.lastIndexOf('.');
-        if (i >= 0) return name.substring(0, i + 1) + newExt;
-        return name + "." + newExt;
-    }
-
-    private BufferedImage scaleImage(BufferedImage src, int maxW, int maxH) {
-        int w = src.getWidth();
-        int h = src.getHeight();
-        double ratio = Math.min(1.0, Math.min((double) maxW / w, (double) maxH / h));
-        int newW = Math.max(1, (int) Math.round(w * ratio));
-        int newH = Math.max(1, (int) Math.round(h * ratio));
-        BufferedImage img = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = img.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.drawImage(src, 0, 0, newW, newH, null);
-        g.dispose();
-        return img;
-    }
-} 
\ No newline at end of file
+}
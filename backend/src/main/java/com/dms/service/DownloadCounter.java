@@ -0,0 +1,116 @@
+package com.dms.service;
+
+import com.dms.entity.Document;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Write-behind download counters.
+ * <p>
+ * A download only bumps a {@link LongAdder} in memory. Every
+ * {@code app.download-counter.flush-interval-ms} the pending counts are written as unordered
+ * bulk {@code $inc} updates that touch nothing but {@code download_count}, and the last counts
+ * are flushed on shutdown. Stored counts therefore lag by at most one interval, and concurrent
+ * downloads never overwrite each other's increments.
+ */
+@Component
+public class DownloadCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadCounter.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.download-counter.batch-size:500}")
+    private int batchSize;
+
+    // Increments share the read side; a flush takes the write side only to swap in a fresh map,
+    // so no increment can land in a map that is already being written out
+    private final StampedLock swapLock = new StampedLock();
+    private volatile Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void increment(String documentId) {
+        add(documentId, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${app.download-counter.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Writes all pending counts; counts that fail to write are kept for the next flush.
+     */
+    public synchronized void flush() {
+        Map<String, LongAdder> flushing;
+        long stamp = swapLock.writeLock();
+        try {
+            flushing = pending;
+            if (flushing.isEmpty()) {
+                return;
+            }
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.unlockWrite(stamp);
+        }
+
+        List<Map.Entry<String, Long>> batch = new ArrayList<>(Math.min(batchSize, flushing.size()));
+        for (Map.Entry<String, LongAdder> entry : flushing.entrySet()) {
+            batch.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Map.Entry<String, Long>> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Document.class);
+        for (Map.Entry<String, Long> count : batch) {
+            bulk.updateOne(new Query(Criteria.where("id").is(count.getKey())),
+                    new Update().inc("downloadCount", count.getValue()));
+        }
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            // Whether a failed bulk applied part of its updates is unknown; re-queueing all of
+            // them may over-count after a partial failure, dropping them would under-count
+            logger.warn("Flushing {} download counters failed, retrying with the next flush: {}", batch.size(), e.getMessage());
+            batch.forEach(count -> add(count.getKey(), count.getValue()));
+        }
+    }
+
+    private void add(String documentId, long delta) {
+        long stamp = swapLock.readLock();
+        try {
+            pending.computeIfAbsent(documentId, id -> new LongAdder()).add(delta);
+        } finally {
+            swapLock.unlockRead(stamp);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.dms.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event connections of all users, and the threads that write to them.
+ * <p>
+ * A user can hold any number of connections, one per tab or device, up to
+ * {@code app.notifications.max-connections-per-user}; beyond that the oldest is closed. Sending
+ * an event only puts it on each connection's queue of {@code app.notifications.queue-capacity}
+ * events, so the thread that created the notification never waits for a client. The queues are
+ * drained by {@code app.notifications.sender-threads} threads, one connection at a time, which
+ * keeps each connection's events in order.
+ * <p>
+ * A client that doesn't keep up is dropped, either when its queue overflows or when one write
+ * has been blocked for {@code app.notifications.stall-timeout-ms}. The browser reconnects and
+ * loads what it missed. Dropping a stalled connection only stops queueing events for it: the
+ * sender thread stuck in its write stays blocked until the servlet container's write timeout
+ * ({@code server.tomcat.connection-timeout}) fails the write, so enough stalled clients at once
+ * can still occupy every sender thread for that long. Every {@code app.notifications.heartbeat-interval-ms} each connection
+ * gets a comment line, so connections whose client has gone away fail a write and are removed.
+ */
+@Component
+public class NotificationBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationBroadcaster.class);
+
+    @Value("${app.notifications.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${app.notifications.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.notifications.max-connections-per-user:10}")
+    private int maxConnectionsPerUser;
+
+    @Value("${app.notifications.stall-timeout-ms:30000}")
+    private long stallTimeoutMs;
+
+    private final Map<Long, List<Connection>> connections = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        // Unbounded, but each connection has at most one drain task queued at a time
+        executor = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "sse-sender-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        connections.values().forEach(list -> list.forEach(Connection::close));
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        Connection connection = register(userId, emitter);
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        connection.offer(SseEmitter.event()
+                .name("connected")
+                .data("Connected to notification stream"));
+        return emitter;
+    }
+
+    /**
+     * Queues an event for every connection of the user. Returns without waiting for any client.
+     */
+    public void send(Long userId, String eventName, Object data) {
+        List<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            if (!connection.offer(SseEmitter.event().name(eventName).data(data))) {
+                logger.debug("Dropping slow notification connection of user {}", userId);
+                remove(connection);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.heartbeat-interval-ms:15000}",
+            initialDelayString = "${app.notifications.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (connection.isStalled(now, stallTimeoutMs)
+                        || !connection.offer(SseEmitter.event().comment("heartbeat"))) {
+                    logger.debug("Dropping stalled notification connection of user {}", connection.userId);
+                    remove(connection);
+                }
+            }
+        }
+    }
+
+    Connection register(Long userId, SseEmitter emitter) {
+        Connection connection = new Connection(userId, emitter, queueCapacity);
+        connections.compute(userId, (id, list) -> {
+            List<Connection> updated = list != null ? list : new CopyOnWriteArrayList<>();
+            updated.add(connection);
+            while (updated.size() > maxConnectionsPerUser) {
+                updated.remove(0).close();
+            }
+            return updated;
+        });
+        return connection;
+    }
+
+    int connectionCount(Long userId) {
+        List<Connection> userConnections = connections.get(userId);
+        return userConnections != null ? userConnections.size() : 0;
+    }
+
+    private void remove(Connection connection) {
+        connection.close();
+        connections.computeIfPresent(connection.userId, (id, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /**
+     * One SSE connection and the events waiting to be written to it.
+     * <p>
+     * Closing never touches the emitter directly, since a write to it may be blocked and the
+     * emitter would block the closing thread too. The drain task completes it instead, once it
+     * is no longer writing.
+     */
+    final class Connection {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        // When the write in progress started, 0 when not writing
+        private volatile long writingSince;
+
+        private Connection(Long userId, SseEmitter emitter, int capacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Queues an event; false if the queue is full or the connection closed.
+         */
+        boolean offer(SseEmitter.SseEventBuilder event) {
+            if (closed || !queue.offer(event)) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+            schedule();
+        }
+
+        boolean isStalled(long now, long timeoutMs) {
+            long since = writingSince;
+            return since != 0 && now - since > timeoutMs;
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    writingSince = System.currentTimeMillis();
+                    try {
+                        emitter.send(event);
+                    } catch (Exception e) {
+                        // Client went away
+                        remove(this);
+                    } finally {
+                        writingSince = 0;
+                    }
+                }
+                if (closed && completed.compareAndSet(false, true)) {
+                    try {
+                        emitter.complete();
+                    } catch (Exception e) {
+                        logger.debug("Could not complete notification connection: {}", e.getMessage());
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // Events or a close that arrived after the last poll
+            if ((!closed && !queue.isEmpty()) || (closed && !completed.get())) {
+                schedule();
+            }
+        }
+    }
+}
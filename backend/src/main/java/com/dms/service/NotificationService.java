@@ -1,6 +1,8 @@
 package com.dms.service;
 
+import com.dms.dto.CursorSlice;
 import com.dms.entity.Notification;
+import com.dms.repository.mongo.KeysetCursor;
 import com.dms.repository.mongo.NotificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -9,11 +11,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class NotificationService {
@@ -21,27 +20,11 @@ public class NotificationService {
     @Autowired
     private NotificationRepository notificationRepository;
 
-    // Store SSE emitters for real-time notifications
-    private final Map<Long, SseEmitter> userEmitters = new ConcurrentHashMap<>();
+    @Autowired
+    private NotificationBroadcaster notificationBroadcaster;
 
     public SseEmitter subscribe(Long userId) {
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-        
-        emitter.onCompletion(() -> userEmitters.remove(userId));
-        emitter.onTimeout(() -> userEmitters.remove(userId));
-        emitter.onError((e) -> userEmitters.remove(userId));
-        
-        userEmitters.put(userId, emitter);
-        
-        try {
-            emitter.send(SseEmitter.event()
-                .name("connected")
-                .data("Connected to notification stream"));
-        } catch (IOException e) {
-            userEmitters.remove(userId);
-        }
-        
-        return emitter;
+        return notificationBroadcaster.subscribe(userId);
     }
 
     public List<Notification> getUserNotifications(Long userId) {
@@ -53,6 +36,10 @@ public class NotificationService {
         return notificationRepository.findByRecipientUserIdOrderByCreatedAtDesc(userId, pageable);
     }
 
+    public CursorSlice<Notification> getUserNotifications(Long userId, String cursor, int size) {
+        return notificationRepository.scrollByRecipientUserId(userId, KeysetCursor.decode(cursor), size);
+    }
+
     public Long getUnreadCount(Long userId) {
         return notificationRepository.countByRecipientUserIdAndReadFalse(userId);
     }
@@ -79,16 +66,14 @@ public class NotificationService {
     }
 
     public void sendRealTimeNotification(Long userId, Notification notification) {
-        SseEmitter emitter = userEmitters.get(userId);
-        if (emitter != null) {
-            try {
-                emitter.send(SseEmitter.event()
-                    .name("notification")
-                    .data(notification));
-            } catch (IOException e) {
-                userEmitters.remove(userId);
-            }
-        }
+        sendEvent(userId, "notification", notification);
+    }
+
+    /**
+     * Queues an event for every open stream of the user; doesn't wait for the clients.
+     */
+    public void sendEvent(Long userId, String eventName, Object data) {
+        notificationBroadcaster.send(userId, eventName, data);
     }
 
     public List<Notification> getUnreadNotifications(Long userId) {
@@ -0,0 +1,176 @@
+package com.dms.service;
+
+import com.dms.entity.RefreshToken;
+import com.dms.entity.User;
+import com.dms.repository.jpa.RefreshTokenRepository;
+import com.dms.repository.jpa.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Long-lived refresh tokens that are exchanged for short-lived access tokens.
+ * <p>
+ * A refresh token is 256 random bits handed to the client once; only its SHA-256 is stored.
+ * Every refresh rotates it: the presented token is revoked and a new one issued. A revoked
+ * token being presented again means it was copied, so all refresh tokens of that user are
+ * revoked and they have to log in again.
+ * <p>
+ * Two tabs or a retried request can present the same token at once, though. For
+ * {@code jwt.refresh-reuse-grace-ms} after a rotation the old token therefore returns the
+ * token it was rotated into instead. The successor is an HMAC of the old token, so it can be
+ * derived again without being stored.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.refresh-expiration:2592000000}")
+    private long refreshExpiration;
+
+    @Value("${jwt.refresh-reuse-grace-ms:30000}")
+    private long reuseGraceMs;
+
+    @Value("${jwt.refresh-secret:${jwt.secret}}")
+    private String refreshSecret;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * The user a refresh was granted for and the refresh token that replaces the presented one.
+     */
+    public record Rotation(User user, String refreshToken) {}
+
+    public String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        save(token, userId);
+        return token;
+    }
+
+    /**
+     * Revokes the token and issues its successor. The conditional update and the insert share a
+     * transaction, so a concurrent refresh that loses the update already sees the successor.
+     * A rejected token must not roll back the revocation of the user's sessions on reuse.
+     */
+    @Transactional(noRollbackFor = RuntimeException.class)
+    public Rotation rotate(String token) {
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(hash(token))
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        if (stored.isRevoked()) {
+            return rotatedMomentsAgo(token, stored);
+        }
+        if (stored.isExpired()) {
+            throw new RuntimeException("Refresh token expired");
+        }
+        String successor = successorOf(token);
+        if (refreshTokenRepository.rotate(stored.getId(), LocalDateTime.now(), hash(successor)) == 0) {
+            // Rotated by a concurrent refresh a moment ago
+            return rotatedMomentsAgo(token, refreshTokenRepository.findByTokenHash(hash(token)).orElseThrow());
+        }
+        save(successor, stored.getUserId());
+        return new Rotation(enabledUser(stored.getUserId()), successor);
+    }
+
+    /**
+     * Handles a revoked token: within the grace period after its rotation it returns the token
+     * it was rotated into, otherwise it is treated as stolen.
+     */
+    private Rotation rotatedMomentsAgo(String token, RefreshToken stored) {
+        boolean inGrace = stored.getReplacedByHash() != null && stored.getRevokedAt() != null
+                && stored.getRevokedAt().plus(Duration.ofMillis(reuseGraceMs)).isAfter(LocalDateTime.now());
+        if (!inGrace) {
+            logger.warn("Revoked refresh token of user {} was presented again; revoking all of their sessions", stored.getUserId());
+            refreshTokenRepository.revokeAllByUserId(stored.getUserId(), LocalDateTime.now());
+            throw new RuntimeException("Invalid refresh token");
+        }
+        String successor = successorOf(token);
+        RefreshToken next = refreshTokenRepository.findByTokenHash(stored.getReplacedByHash())
+                .filter(candidate -> candidate.getTokenHash().equals(hash(successor)))
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        if (next.isRevoked() || next.isExpired()) {
+            // The successor was rotated or revoked in turn; that session carries on without this caller
+            throw new RuntimeException("Invalid refresh token");
+        }
+        return new Rotation(enabledUser(stored.getUserId()), successor);
+    }
+
+    /**
+     * Revokes one refresh token, for example on logout. Unknown tokens are ignored.
+     */
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(stored -> refreshTokenRepository.revoke(stored.getId(), LocalDateTime.now()));
+    }
+
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private void save(String token, Long userId) {
+        refreshTokenRepository.save(new RefreshToken(hash(token), userId,
+                LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration))));
+    }
+
+    private User enabledUser(Long userId) {
+        return userRepository.findById(userId)
+                .filter(User::isEnabled)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * The token a refresh token is rotated into: an HMAC of it under the server's key, so the
+     * same successor can be handed out again during the grace period.
+     */
+    String successorOf(String token) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(refreshSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.dms.service;
 
 import com.dms.entity.User;
 import com.dms.repository.jpa.UserRepository;
+import com.dms.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -21,6 +22,12 @@ public class UserService implements UserDetailsService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         System.out.println("UserService - Loading user by username: " + username);
@@ -77,7 +84,9 @@ public class UserService implements UserDetailsService {
         existingUser.setRole(user.getRole());
         existingUser.setActive(user.isActive());
         
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        principalCache.invalidate(saved.getId());
+        return saved;
     }
 
     public void deleteUser(Long id) {
@@ -85,6 +94,8 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         user.setActive(false);
         userRepository.save(user);
+        principalCache.invalidate(id);
+        refreshTokenService.revokeAllForUser(id);
     }
 
     public boolean changePassword(Long userId, String oldPassword, String newPassword) {
@@ -97,6 +108,9 @@ public class UserService implements UserDetailsService {
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.invalidate(userId);
+        // Other sessions must log in again with the new password
+        refreshTokenService.revokeAllForUser(userId);
         return true;
     }
 
@@ -0,0 +1,173 @@
+package com.dms.service.access;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compressed set of non-negative ints in the style of a Roaring bitmap: values are grouped by
+ * their upper 16 bits, and each group is kept as a sorted array while it is sparse and as a
+ * 65536-bit bitmap once it holds more than {@value #ARRAY_MAX} values. A user who can see a
+ * handful of documents costs a few bytes; one who can see most of them costs 8 KB per 65536
+ * documents.
+ * <p>
+ * Not thread-safe; {@link AccessControlCache} guards all access.
+ */
+final class AccessBitmap {
+
+    static final int ARRAY_MAX = 4096;
+
+    private final Map<Integer, Container> containers = new HashMap<>();
+    private int cardinality;
+
+    boolean add(int value) {
+        Container container = containers.get(value >>> 16);
+        if (container == null) {
+            container = new ArrayContainer();
+            containers.put(value >>> 16, container);
+        }
+        char low = (char) value;
+        if (container.contains(low)) {
+            return false;
+        }
+        if (container instanceof ArrayContainer array && array.size == ARRAY_MAX) {
+            container = array.toBitmap();
+            containers.put(value >>> 16, container);
+        }
+        container.add(low);
+        cardinality++;
+        return true;
+    }
+
+    boolean remove(int value) {
+        Container container = containers.get(value >>> 16);
+        char low = (char) value;
+        if (container == null || !container.remove(low)) {
+            return false;
+        }
+        cardinality--;
+        int remaining = container.cardinality();
+        if (remaining == 0) {
+            containers.remove(value >>> 16);
+        } else if (container instanceof BitmapContainer bitmap && remaining <= ARRAY_MAX) {
+            containers.put(value >>> 16, bitmap.toArray());
+        }
+        return true;
+    }
+
+    boolean contains(int value) {
+        Container container = containers.get(value >>> 16);
+        return container != null && container.contains((char) value);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    private interface Container {
+        boolean contains(char value);
+
+        void add(char value);
+
+        boolean remove(char value);
+
+        int cardinality();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        public void add(char value) {
+            int at = -Arrays.binarySearch(values, 0, size, value) - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+            }
+            System.arraycopy(values, at, values, at + 1, size - at);
+            values[at] = value;
+            size++;
+        }
+
+        @Override
+        public boolean remove(char value) {
+            int at = Arrays.binarySearch(values, 0, size, value);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(values, at + 1, values, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words = new long[1024];
+        private int cardinality;
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public void add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+        }
+
+        @Override
+        public boolean remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before == words[value >>> 6]) {
+                return false;
+            }
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    array.values[array.size++] = (char) (word * 64 + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.dms.service.access;
+
+import com.dms.entity.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory map from each user to an {@link AccessBitmap} of the documents they can see.
+ * <p>
+ * Every live document gets a dense ordinal. The bitmap of a user holds the ordinals of the
+ * documents they own or that are shared with them, and public documents sit in the bitmap of
+ * {@link Document#PUBLIC_ACCESS}. An access check is therefore one hash lookup and two bitmap
+ * probes, however many users a document is shared with. The cache is filled from MongoDB at
+ * startup and then kept current by {@link #put} and {@link #remove} on upload, share, unshare
+ * and delete. Until that first load has finished, callers fall back to the document itself.
+ */
+@Component
+public class AccessControlCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessControlCache.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    // Sorted visibleTo of each ordinal, so that an update only touches the bitmaps that changed
+    private final Map<Integer, long[]> grants = new HashMap<>();
+    // Lock version each ordinal's grant was taken from; puts of older versions are ignored
+    private final Map<Integer, Long> lockVersions = new HashMap<>();
+    private final Map<Long, AccessBitmap> bitmaps = new HashMap<>();
+    private int nextOrdinal;
+
+    private volatile boolean loaded;
+    // Deletions seen while the initial load is streaming, so it doesn't resurrect them
+    private Set<String> removedWhileLoading = new HashSet<>();
+
+    /**
+     * Per-user view that holds the read lock, for checking many documents in a row.
+     */
+    public final class Reader implements AutoCloseable {
+        private final AccessBitmap user;
+        private final AccessBitmap everyone;
+
+        private Reader(Long userId) {
+            lock.readLock().lock();
+            this.user = bitmaps.get(userId);
+            this.everyone = bitmaps.get(Document.PUBLIC_ACCESS);
+        }
+
+        /**
+         * Returns whether the user can see the document, or null when it isn't cached.
+         */
+        public Boolean canAccess(String documentId) {
+            Integer ordinal = ordinals.get(documentId);
+            if (ordinal == null) {
+                return null;
+            }
+            return (user != null && user.contains(ordinal)) || (everyone != null && everyone.contains(ordinal));
+        }
+
+        @Override
+        public void close() {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Thread thread = new Thread(() -> {
+            Query query = new Query(Criteria.where("isDeleted").is(false));
+            query.fields().include("id", "uploadedBy", "isPublic", "allowedUsers", "visibleTo", "lockVersion");
+            AtomicLong count = new AtomicLong();
+            try (Stream<Document> documents = mongoTemplate.stream(query, Document.class)) {
+                documents.forEach(document -> {
+                    if (putIfAbsent(document)) {
+                        count.incrementAndGet();
+                    }
+                });
+                lock.writeLock().lock();
+                try {
+                    removedWhileLoading = null;
+                    loaded = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("Loaded access bitmaps for {} documents and {} principals", count.get(), bitmaps.size());
+            } catch (RuntimeException e) {
+                logger.error("Loading the access control cache failed; access checks fall back to the documents", e);
+                lock.writeLock().lock();
+                try {
+                    removedWhileLoading = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }, "access-control-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Reader reader(Long userId) {
+        return new Reader(userId);
+    }
+
+    /**
+     * Access check for a document that has already been loaded; uses the bitmaps once they are
+     * available and the document's own fields otherwise.
+     */
+    public boolean canAccess(Long userId, Document document) {
+        if (loaded) {
+            try (Reader reader = reader(userId)) {
+                Boolean cached = reader.canAccess(document.getId());
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+        return document.canAccess(userId);
+    }
+
+    /**
+     * Records the current owner, sharing and public flag of a document. Concurrent writers can
+     * call this out of commit order, so a document older than the one already recorded, by
+     * lock version, is ignored.
+     */
+    public void put(Document document) {
+        long[] grant = grantOf(document);
+        lock.writeLock().lock();
+        try {
+            if (removedWhileLoading != null) {
+                removedWhileLoading.remove(document.getId());
+            }
+            apply(document.getId(), versionOf(document), grant);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String documentId) {
+        lock.writeLock().lock();
+        try {
+            if (removedWhileLoading != null) {
+                removedWhileLoading.add(documentId);
+            }
+            Integer ordinal = ordinals.remove(documentId);
+            if (ordinal == null) {
+                return;
+            }
+            lockVersions.remove(ordinal);
+            for (long principal : grants.remove(ordinal)) {
+                clear(principal, ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean putIfAbsent(Document document) {
+        long[] grant = grantOf(document);
+        lock.writeLock().lock();
+        try {
+            // Anything put or removed since the load started is newer than what the stream read
+            if (ordinals.containsKey(document.getId()) || removedWhileLoading.contains(document.getId())) {
+                return false;
+            }
+            apply(document.getId(), versionOf(document), grant);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(String documentId, long version, long[] grant) {
+        Integer ordinal = ordinals.get(documentId);
+        if (ordinal == null) {
+            ordinal = nextOrdinal++;
+            ordinals.put(documentId, ordinal);
+        } else if (version < lockVersions.getOrDefault(ordinal, -1L)) {
+            return;
+        }
+        lockVersions.put(ordinal, version);
+        long[] previous = grants.put(ordinal, grant);
+        if (previous != null) {
+            for (long principal : previous) {
+                if (Arrays.binarySearch(grant, principal) < 0) {
+                    clear(principal, ordinal);
+                }
+            }
+        }
+        for (long principal : grant) {
+            bitmaps.computeIfAbsent(principal, p -> new AccessBitmap()).add(ordinal);
+        }
+    }
+
+    private void clear(long principal, int ordinal) {
+        AccessBitmap bitmap = bitmaps.get(principal);
+        if (bitmap != null && bitmap.remove(ordinal) && bitmap.isEmpty()) {
+            bitmaps.remove(principal);
+        }
+    }
+
+    private static long versionOf(Document document) {
+        return document.getLockVersion() != null ? document.getLockVersion() : -1L;
+    }
+
+    private static long[] grantOf(Document document) {
+        List<Long> visibleTo = document.getVisibleTo() != null ? document.getVisibleTo() : document.computeVisibleTo();
+        return visibleTo.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+}
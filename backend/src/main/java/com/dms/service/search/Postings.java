@@ -0,0 +1,66 @@
+package com.dms.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of one term within a segment: the ordinals of the documents containing the
+ * term, in ascending order, and the term's positions in each of them.
+ * <p>
+ * A position packs the field ordinal into the top byte ({@code field << FIELD_SHIFT | offset}),
+ * so positions of one document sort by field and a phrase never matches across fields.
+ */
+final class Postings {
+
+    static final int FIELD_SHIFT = 24;
+    static final int OFFSET_MASK = (1 << FIELD_SHIFT) - 1;
+
+    private int size;
+    private int[] docs;
+    private int[][] positions;
+
+    Postings() {
+        this(4);
+    }
+
+    Postings(int capacity) {
+        docs = new int[Math.max(1, capacity)];
+        positions = new int[docs.length][];
+    }
+
+    void add(int doc, int[] docPositions) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        docs[size] = doc;
+        positions[size] = docPositions;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int doc(int i) {
+        return docs[i];
+    }
+
+    /**
+     * Index of the document in this list, or a negative value when it is absent.
+     */
+    int find(int doc) {
+        return Arrays.binarySearch(docs, 0, size, doc);
+    }
+
+    int[] positions(int i) {
+        return positions[i];
+    }
+
+    static int field(int position) {
+        return position >>> FIELD_SHIFT;
+    }
+
+    static int encode(int field, int offset) {
+        return field << FIELD_SHIFT | Math.min(offset, OFFSET_MASK);
+    }
+}
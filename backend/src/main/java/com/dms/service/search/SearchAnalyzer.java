@@ -0,0 +1,95 @@
+package com.dms.service.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into index terms: runs of letters and digits, lower-cased and with accents
+ * removed. The same analysis is applied to indexed text and to queries.
+ */
+public final class SearchAnalyzer {
+
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    private SearchAnalyzer() {}
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        Tokenizer tokenizer = new Tokenizer(tokens::add);
+        tokenizer.feed(text);
+        tokenizer.finish();
+        return tokens;
+    }
+
+    /**
+     * Tokenizes a stream of text, reading at most {@code chunkSize} characters at a time, so
+     * long extracted text never has to be held in memory as a whole.
+     */
+    public static void tokenize(Reader reader, int chunkSize, Consumer<String> sink) throws IOException {
+        Tokenizer tokenizer = new Tokenizer(sink);
+        char[] buffer = new char[Math.max(2, chunkSize)];
+        int carried = 0;
+        int read;
+        while ((read = reader.read(buffer, carried, buffer.length - carried)) != -1) {
+            int end = carried + read;
+            // Keep a trailing high surrogate for the next chunk so no code point is split
+            int usable = Character.isHighSurrogate(buffer[end - 1]) ? end - 1 : end;
+            tokenizer.feed(new String(buffer, 0, usable));
+            carried = end - usable;
+            if (carried > 0) {
+                buffer[0] = buffer[end - 1];
+            }
+        }
+        if (carried > 0) {
+            tokenizer.feed(new String(buffer, 0, carried));
+        }
+        tokenizer.finish();
+    }
+
+    private static final class Tokenizer {
+        private final Consumer<String> sink;
+        private final StringBuilder current = new StringBuilder();
+
+        Tokenizer(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        void feed(String text) {
+            String normalized = Normalizer.normalize(text, Normalizer.Form.NFKD);
+            for (int i = 0; i < normalized.length(); ) {
+                int cp = normalized.codePointAt(i);
+                i += Character.charCount(cp);
+                if (Character.getType(cp) == Character.NON_SPACING_MARK) {
+                    continue;
+                }
+                if (Character.isLetterOrDigit(cp)) {
+                    if (current.length() <= MAX_TOKEN_LENGTH) {
+                        current.appendCodePoint(cp);
+                    }
+                } else {
+                    emit();
+                }
+            }
+        }
+
+        void finish() {
+            emit();
+        }
+
+        private void emit() {
+            // Overlong runs are hashes, encoded blobs and the like; nobody searches for them
+            if (current.length() > 0 && current.length() <= MAX_TOKEN_LENGTH) {
+                sink.accept(current.toString().toLowerCase(Locale.ROOT));
+            }
+            current.setLength(0);
+        }
+    }
+}
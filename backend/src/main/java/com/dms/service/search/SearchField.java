@@ -0,0 +1,23 @@
+package com.dms.service.search;
+
+/**
+ * Document fields covered by the search index, with the weight a match in each field carries
+ * when results are ranked.
+ */
+public enum SearchField {
+
+    FILENAME(3.0f),
+    TAGS(2.0f),
+    DESCRIPTION(1.0f),
+    CONTENT(0.5f);
+
+    private final float boost;
+
+    SearchField(float boost) {
+        this.boost = boost;
+    }
+
+    public float getBoost() {
+        return boost;
+    }
+}
@@ -0,0 +1,882 @@
+package com.dms.service.search;
+
+import com.dms.entity.Document;
+import com.dms.service.access.AccessControlCache;
+import com.dms.service.storage.ContentStorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process full-text index over document metadata and extracted text.
+ * <p>
+ * The index is an inverted index split into segments, each mapping terms to the documents and
+ * positions they occur at. Changes go into an in-memory segment that is sealed and written to
+ * {@code app.search.index-dir} on every commit; once there are more than
+ * {@code app.search.max-segments} sealed segments they are merged into one. A
+ * {@code segments.properties} file records which segment files make up the last commit.
+ * <p>
+ * On startup the committed segments are loaded and documents changed in MongoDB since the
+ * commit are re-indexed. Without a usable commit the index is rebuilt from MongoDB.
+ * <p>
+ * Results are ranked with BM25, with per-field weights from {@link SearchField}, and only
+ * documents the searching user may see are returned.
+ */
+@Component
+public class SearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final String META_FILE = "segments.properties";
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_WEIGHT = 0.5f;
+    // Gap between the values of a multi-valued field so that phrases do not span two tags
+    private static final int VALUE_GAP = 8;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Autowired
+    private AccessControlCache accessControlCache;
+
+    @Value("${app.search.text-chunk-chars:65536}")
+    private int textChunkChars;
+
+    @Value("${app.search.index-dir:./search-index}")
+    private String indexDir;
+
+    @Value("${app.search.max-buffered-docs:10000}")
+    private int maxBufferedDocs;
+
+    @Value("${app.search.max-segments:8}")
+    private int maxSegments;
+
+    @Value("${app.search.indexing-threads:2}")
+    private int indexingThreads;
+
+    @Value("${app.search.indexing-queue-capacity:1000}")
+    private int indexingQueueCapacity;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Guards commit and merge, which must not interleave their file writes
+    private final Object commitLock = new Object();
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, Location> live = new HashMap<>();
+    private Segment active;
+    private long nextGeneration = 1;
+    private long commitTime;
+    private boolean rebuildRequired;
+    private volatile boolean dirty;
+
+    private Path directory;
+    private ExecutorService maintenance;
+    private final AtomicBoolean maintenanceQueued = new AtomicBoolean();
+    // Analyzes documents whose extracted text has to be read from the content store
+    private ThreadPoolExecutor indexer;
+    // Ticket of the latest queued analysis of each document; a later change of the document
+    // removes or replaces it, and an analysis whose ticket is gone is discarded
+    private final Map<String, Long> pendingText = new ConcurrentHashMap<>();
+    private final AtomicLong tickets = new AtomicLong();
+
+    private record Location(Segment segment, int ord) {}
+
+    private record Analyzed(Segment.DocEntry entry, Map<String, int[]> termPositions) {}
+
+    /** A matching document and its relevance score. */
+    public record Hit(String id, float score) {}
+
+    private record Ranked(List<Hit> hits, long total) {}
+
+    private static final Comparator<Hit> WORST_FIRST =
+            Comparator.comparingDouble(Hit::score).thenComparing(Hit::id, Comparator.reverseOrder());
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Paths.get(indexDir).toAbsolutePath();
+        Files.createDirectories(directory);
+        try {
+            loadCommit();
+        } catch (IOException e) {
+            logger.warn("Search index in {} is unreadable, rebuilding it: {}", directory, e.getMessage());
+            segments.clear();
+            live.clear();
+            rebuildRequired = true;
+        }
+        active = new Segment(nextGeneration++);
+        maintenance = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "search-index-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        // When the queue is full the caller analyzes the document itself, which throttles it
+        indexer = new ThreadPoolExecutor(indexingThreads, indexingThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(indexingQueueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "search-indexer-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        indexer.shutdown();
+        indexer.awaitTermination(30, TimeUnit.SECONDS);
+        maintenance.shutdown();
+        maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        commit();
+    }
+
+    /**
+     * Re-indexes what changed in MongoDB since the last commit, or everything when there is
+     * no commit. Runs in the background; searches see the index fill up as it goes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        Thread thread = new Thread(() -> {
+            try {
+                Query query = new Query();
+                if (rebuildRequired) {
+                    query.addCriteria(Criteria.where("isDeleted").is(false));
+                } else {
+                    // Allow for clock skew between this node and the ones writing to MongoDB
+                    LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(commitTime), ZoneId.systemDefault()).minusMinutes(1);
+                    query.addCriteria(new Criteria().orOperator(
+                            Criteria.where("lastModified").gte(since),
+                            Criteria.where("uploadDate").gte(since),
+                            Criteria.where("textExtractedAt").gte(since)));
+                }
+                query.fields().exclude("fileContent").exclude("thumbnailContent");
+                AtomicLong count = new AtomicLong();
+                try (Stream<Document> documents = mongoTemplate.stream(query, Document.class)) {
+                    documents.forEach(document -> {
+                        index(document);
+                        count.incrementAndGet();
+                    });
+                }
+                logger.info("Search index {} {} documents", rebuildRequired ? "rebuilt from" : "caught up on", count);
+                rebuildRequired = false;
+                requestMaintenance();
+            } catch (RuntimeException e) {
+                logger.error("Search index catch-up failed", e);
+            }
+        }, "search-index-catch-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds or replaces the document in the index. Deleted documents are removed.
+     * <p>
+     * Metadata is analyzed on the calling thread. A document with extracted text is handed to
+     * the indexer threads instead, since its text has to be read from the content store; it
+     * shows up in searches once they have analyzed it.
+     */
+    public void index(Document document) {
+        if (document.isDeleted()) {
+            delete(document.getId());
+            return;
+        }
+        if (document.getTextRef() == null) {
+            apply(document.getId(), analyze(document), null);
+            return;
+        }
+        long ticket = tickets.incrementAndGet();
+        pendingText.put(document.getId(), ticket);
+        try {
+            indexer.execute(() -> {
+                try {
+                    apply(document.getId(), analyze(document), ticket);
+                } catch (RuntimeException e) {
+                    pendingText.remove(document.getId(), ticket);
+                    logger.error("Indexing document {} failed", document.getId(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the catch-up on the next start indexes it
+            pendingText.remove(document.getId(), ticket);
+        }
+    }
+
+    private Analyzed analyze(Document document) {
+        Map<String, PositionList> terms = new HashMap<>();
+        int[] fieldLengths = new int[SearchField.values().length];
+        fieldLengths[SearchField.FILENAME.ordinal()] = analyze(SearchField.FILENAME, List.of(nullToEmpty(document.getOriginalFilename())), terms);
+        fieldLengths[SearchField.TAGS.ordinal()] = analyze(SearchField.TAGS, document.getTags() != null ? document.getTags() : List.of(), terms);
+        fieldLengths[SearchField.DESCRIPTION.ordinal()] = analyze(SearchField.DESCRIPTION, List.of(nullToEmpty(document.getDescription())), terms);
+        if (document.getTextRef() != null) {
+            fieldLengths[SearchField.CONTENT.ordinal()] = analyzeText(document, terms);
+        }
+
+        Map<String, int[]> termPositions = new HashMap<>(terms.size() * 2);
+        terms.forEach((term, positions) -> termPositions.put(term, positions.toArray()));
+        long[] allowed = document.getAllowedUsers() != null
+                ? document.getAllowedUsers().stream().filter(id -> id != null).mapToLong(Long::longValue).toArray()
+                : new long[0];
+        Segment.DocEntry entry = new Segment.DocEntry(document.getId(), document.getUploadedBy(), document.isPublic(), allowed, fieldLengths);
+        return new Analyzed(entry, termPositions);
+    }
+
+    /**
+     * Replaces the document with its analyzed form; with a {@code ticket}, only if no later
+     * change of the document has superseded it.
+     */
+    private void apply(String documentId, Analyzed analyzed, Long ticket) {
+        int buffered;
+        lock.writeLock().lock();
+        try {
+            if (ticket == null) {
+                // Newer than any analysis still queued for the document
+                pendingText.remove(documentId);
+            } else if (!pendingText.remove(documentId, ticket)) {
+                return;
+            }
+            Location previous = live.get(documentId);
+            if (previous != null) {
+                previous.segment().delete(previous.ord());
+            }
+            int ord = active.add(analyzed.entry(), analyzed.termPositions());
+            live.put(documentId, new Location(active, ord));
+            buffered = active.docCount();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (buffered >= maxBufferedDocs) {
+            requestMaintenance();
+        }
+    }
+
+    public void delete(String documentId) {
+        lock.writeLock().lock();
+        try {
+            pendingText.remove(documentId);
+            Location previous = live.remove(documentId);
+            if (previous != null) {
+                previous.segment().delete(previous.ord());
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the matching documents visible to the user, best match first.
+     */
+    public Page<String> search(String queryText, Long userId, Pageable pageable) {
+        SearchQuery query = SearchQuery.parse(queryText);
+        if (query.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        int wanted = (int) Math.min(Integer.MAX_VALUE - 1, pageable.getOffset() + pageable.getPageSize());
+        Ranked ranked = rank(query, userId, null, wanted);
+        List<String> ids = ranked.hits().stream()
+                .skip(pageable.getOffset())
+                .map(Hit::id)
+                .collect(Collectors.toList());
+        return new PageImpl<>(ids, pageable, ranked.total());
+    }
+
+    /**
+     * Returns up to {@code size} hits ranked after {@code after} (from the top when null), plus
+     * whether more follow. Only {@code size + 1} hits are kept however deep the client pages.
+     */
+    public Slice<Hit> searchAfter(String queryText, Long userId, Hit after, int size) {
+        SearchQuery query = SearchQuery.parse(queryText);
+        if (query.isEmpty()) {
+            return new SliceImpl<>(List.of());
+        }
+        List<Hit> hits = rank(query, userId, after, size + 1).hits();
+        boolean hasNext = hits.size() > size;
+        return new SliceImpl<>(hasNext ? hits.subList(0, size) : hits, Pageable.ofSize(size), hasNext);
+    }
+
+    private Ranked rank(SearchQuery query, Long userId, Hit after, int wanted) {
+        // Min-heap of the best hits so far; equal scores fall back to id order to keep pages stable
+        PriorityQueue<Hit> top = new PriorityQueue<>(WORST_FIRST);
+        long total = 0;
+
+        lock.readLock().lock();
+        // Access bitmaps answer visibility in O(1); the ACL stored with each entry covers the
+        // time before they are loaded and documents they don't know yet
+        AccessControlCache.Reader access = accessControlCache.isLoaded() ? accessControlCache.reader(userId) : null;
+        try {
+            List<Segment> searchable = new ArrayList<>(segments);
+            searchable.add(active);
+            Stats stats = new Stats(searchable);
+            for (Segment segment : searchable) {
+                Hits hits = matchAll(segment, query, stats);
+                for (int i = 0; i < hits.size; i++) {
+                    int ord = hits.docs[i];
+                    if (segment.isDeleted(ord)) continue;
+                    Segment.DocEntry doc = segment.doc(ord);
+                    Boolean visible = access != null ? access.canAccess(doc.id()) : null;
+                    if (visible == null ? !doc.isVisibleTo(userId) : !visible) continue;
+                    Hit hit = new Hit(doc.id(), hits.scores[i]);
+                    // Hits ranked at or above the cursor were on earlier pages
+                    if (after != null && WORST_FIRST.compare(hit, after) >= 0) continue;
+                    total++;
+                    top.add(hit);
+                    if (top.size() > wanted) {
+                        top.poll();
+                    }
+                }
+            }
+        } finally {
+            if (access != null) {
+                access.close();
+            }
+            lock.readLock().unlock();
+        }
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(WORST_FIRST.reversed());
+        return new Ranked(ranked, total);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms:5000}")
+    public void scheduledCommit() {
+        if (dirty) {
+            requestMaintenance();
+        }
+    }
+
+    private void requestMaintenance() {
+        if (maintenanceQueued.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(() -> {
+                    maintenanceQueued.set(false);
+                    try {
+                        commit();
+                        mergeIfNeeded();
+                    } catch (RuntimeException e) {
+                        logger.error("Search index maintenance failed", e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; close() commits whatever is left
+                maintenanceQueued.set(false);
+            }
+        }
+    }
+
+    // --- matching and scoring ----------------------------------------------------------------
+
+    private Hits matchAll(Segment segment, SearchQuery query, Stats stats) {
+        List<Hits> clauseHits = new ArrayList<>();
+        for (SearchQuery.Clause clause : query.getClauses()) {
+            Hits hits = clause.isPhrase() ? matchPhrase(segment, clause, stats) : matchTerm(segment, clause, stats);
+            if (hits.size == 0) {
+                return Hits.EMPTY;
+            }
+            clauseHits.add(hits);
+        }
+        // Intersect starting from the most selective clause
+        clauseHits.sort(Comparator.comparingInt(h -> h.size));
+        Hits result = clauseHits.get(0);
+        for (int c = 1; c < clauseHits.size() && result.size > 0; c++) {
+            result = result.intersect(clauseHits.get(c));
+        }
+        return result;
+    }
+
+    private Hits matchTerm(Segment segment, SearchQuery.Clause clause, Stats stats) {
+        String term = clause.terms().get(0);
+        if (!clause.prefix()) {
+            Postings postings = segment.postings(term);
+            return postings != null ? scorePostings(segment, term, postings, 1f, stats) : Hits.EMPTY;
+        }
+
+        Map<String, Postings> expansions = new LinkedHashMap<>();
+        Postings exact = segment.postings(term);
+        if (exact != null) {
+            expansions.put(term, exact);
+        }
+        for (Map.Entry<String, Postings> entry : segment.termsWithPrefix(term).entrySet()) {
+            if (expansions.size() >= MAX_PREFIX_EXPANSIONS) break;
+            expansions.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        if (expansions.size() <= 1) {
+            return expansions.isEmpty() ? Hits.EMPTY
+                    : scorePostings(segment, expansions.keySet().iterator().next(), expansions.values().iterator().next(),
+                    exact != null ? 1f : PREFIX_WEIGHT, stats);
+        }
+        // Union of the expansions; an exact match outranks a word that merely starts with the term
+        float[] scores = new float[segment.docCount()];
+        BitSet matched = new BitSet(segment.docCount());
+        for (Map.Entry<String, Postings> entry : expansions.entrySet()) {
+            float weight = entry.getKey().equals(term) ? 1f : PREFIX_WEIGHT;
+            Hits hits = scorePostings(segment, entry.getKey(), entry.getValue(), weight, stats);
+            for (int i = 0; i < hits.size; i++) {
+                scores[hits.docs[i]] += hits.scores[i];
+                matched.set(hits.docs[i]);
+            }
+        }
+        Hits union = new Hits(matched.cardinality());
+        for (int doc = matched.nextSetBit(0); doc >= 0; doc = matched.nextSetBit(doc + 1)) {
+            union.add(doc, scores[doc]);
+        }
+        return union;
+    }
+
+    private Hits scorePostings(Segment segment, String term, Postings postings, float weight, Stats stats) {
+        float idf = stats.idf(term) * weight;
+        Hits hits = new Hits(postings.size());
+        for (int i = 0; i < postings.size(); i++) {
+            int ord = postings.doc(i);
+            float tf = 0;
+            for (int position : postings.positions(i)) {
+                tf += stats.weight(segment, ord, Postings.field(position));
+            }
+            hits.add(ord, idf * saturate(tf));
+        }
+        return hits;
+    }
+
+    private Hits matchPhrase(Segment segment, SearchQuery.Clause clause, Stats stats) {
+        List<String> terms = clause.terms();
+        Postings[] postings = new Postings[terms.size()];
+        float idf = 0;
+        for (int t = 0; t < terms.size(); t++) {
+            postings[t] = segment.postings(terms.get(t));
+            if (postings[t] == null) {
+                return Hits.EMPTY;
+            }
+            idf += stats.idf(terms.get(t));
+        }
+        Postings lead = postings[0];
+        Hits hits = new Hits(Math.min(16, lead.size()));
+        for (int i = 0; i < lead.size(); i++) {
+            int ord = lead.doc(i);
+            int[][] positions = new int[terms.size()][];
+            positions[0] = lead.positions(i);
+            boolean all = true;
+            for (int t = 1; t < terms.size() && all; t++) {
+                int index = postings[t].find(ord);
+                all = index >= 0;
+                if (all) positions[t] = postings[t].positions(index);
+            }
+            if (!all) continue;
+
+            float tf = 0;
+            for (int start : positions[0]) {
+                boolean phrase = true;
+                for (int t = 1; t < terms.size() && phrase; t++) {
+                    phrase = Arrays.binarySearch(positions[t], start + t) >= 0;
+                }
+                if (phrase) {
+                    tf += stats.weight(segment, ord, Postings.field(start));
+                }
+            }
+            if (tf > 0) {
+                hits.add(ord, idf * saturate(tf));
+            }
+        }
+        return hits;
+    }
+
+    private static float saturate(float tf) {
+        return tf * (K1 + 1) / (tf + K1);
+    }
+
+    /** Collection statistics shared by all segments during one search. */
+    private static final class Stats {
+        private final List<Segment> segments;
+        private final long docCount;
+        private final float[] averageFieldLength;
+        private final Map<String, Float> idfCache = new HashMap<>();
+
+        Stats(List<Segment> segments) {
+            this.segments = segments;
+            long docs = 0;
+            long[] totals = new long[SearchField.values().length];
+            for (Segment segment : segments) {
+                docs += segment.docCount();
+                for (int f = 0; f < totals.length; f++) {
+                    totals[f] += segment.fieldLengthTotal(f);
+                }
+            }
+            docCount = Math.max(1, docs);
+            averageFieldLength = new float[totals.length];
+            for (int f = 0; f < totals.length; f++) {
+                averageFieldLength[f] = Math.max(1f, (float) totals[f] / docCount);
+            }
+        }
+
+        float idf(String term) {
+            return idfCache.computeIfAbsent(term, t -> {
+                long df = 0;
+                for (Segment segment : segments) {
+                    Postings postings = segment.postings(t);
+                    if (postings != null) df += postings.size();
+                }
+                return (float) Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            });
+        }
+
+        /** Contribution of one occurrence in the given field, normalised by the field's length. */
+        float weight(Segment segment, int ord, int field) {
+            SearchField[] fields = SearchField.values();
+            if (field >= fields.length) return 0;
+            int length = segment.doc(ord).fieldLengths()[field];
+            return fields[field].getBoost() / (1 - B + B * length / averageFieldLength[field]);
+        }
+    }
+
+    /** Matching ordinals of one segment in ascending order, with their scores. */
+    private static final class Hits {
+        static final Hits EMPTY = new Hits(0);
+
+        int size;
+        int[] docs;
+        float[] scores;
+
+        Hits(int capacity) {
+            docs = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int doc, float score) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+                scores = Arrays.copyOf(scores, docs.length);
+            }
+            docs[size] = doc;
+            scores[size] = score;
+            size++;
+        }
+
+        Hits intersect(Hits other) {
+            Hits result = new Hits(Math.min(size, other.size));
+            int i = 0, j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    result.add(docs[i], scores[i] + other.scores[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+
+    // --- analysis ----------------------------------------------------------------------------
+
+    private static int analyze(SearchField field, List<String> values, Map<String, PositionList> terms) {
+        int offset = 0;
+        int length = 0;
+        for (String value : values) {
+            List<String> tokens = SearchAnalyzer.tokenize(value);
+            for (String token : tokens) {
+                terms.computeIfAbsent(token, t -> new PositionList()).add(Postings.encode(field.ordinal(), offset++));
+            }
+            length += tokens.size();
+            offset += VALUE_GAP;
+        }
+        return length;
+    }
+
+    /**
+     * Streams the document's extracted text through the analyzer chunk by chunk.
+     */
+    private int analyzeText(Document document, Map<String, PositionList> terms) {
+        int field = SearchField.CONTENT.ordinal();
+        int[] offset = {0};
+        try (Reader reader = new InputStreamReader(contentStorageService.open(document.getTextRef()), StandardCharsets.UTF_8)) {
+            SearchAnalyzer.tokenize(reader, textChunkChars,
+                    token -> terms.computeIfAbsent(token, t -> new PositionList()).add(Postings.encode(field, offset[0]++)));
+        } catch (IOException e) {
+            // Still index the metadata; the text is picked up the next time the document is indexed
+            logger.warn("Could not read extracted text of document {}: {}", document.getId(), e.getMessage());
+        }
+        return offset[0];
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static final class PositionList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // --- persistence -------------------------------------------------------------------------
+
+    /**
+     * Seals the in-memory segment and writes it, changed deletion bits and a new commit point.
+     */
+    void commit() {
+        synchronized (commitLock) {
+            if (!dirty) {
+                return;
+            }
+            Segment sealed = null;
+            List<Segment> snapshot;
+            List<Segment> changedDeletes = new ArrayList<>();
+            List<BitSet> deletes = new ArrayList<>();
+            long time;
+            lock.writeLock().lock();
+            try {
+                dirty = false;
+                time = System.currentTimeMillis();
+                if (active.docCount() > 0) {
+                    sealed = active;
+                    segments.add(sealed);
+                    active = new Segment(nextGeneration++);
+                }
+                for (Segment segment : segments) {
+                    if (segment.hasDirtyDeletes()) {
+                        segment.setDeletesDirty(false);
+                        changedDeletes.add(segment);
+                        deletes.add(segment.copyDeletes());
+                    }
+                }
+                snapshot = new ArrayList<>(segments);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                if (sealed != null) {
+                    sealed.write(segmentFile(sealed));
+                }
+                for (int i = 0; i < changedDeletes.size(); i++) {
+                    Segment.writeDeletes(deletesFile(changedDeletes.get(i)), deletes.get(i));
+                }
+                writeMeta(snapshot, time);
+                commitTime = time;
+            } catch (IOException e) {
+                logger.error("Search index commit failed: {}", e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    changedDeletes.forEach(segment -> segment.setDeletesDirty(true));
+                    dirty = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private void mergeIfNeeded() {
+        synchronized (commitLock) {
+            List<Segment> sources;
+            List<BitSet> deletes = new ArrayList<>();
+            long generation;
+            lock.readLock().lock();
+            try {
+                if (segments.size() <= maxSegments) {
+                    return;
+                }
+                sources = new ArrayList<>(segments);
+                sources.forEach(segment -> deletes.add(segment.copyDeletes()));
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                generation = nextGeneration++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Segment.Merged merged = Segment.merge(generation, sources, deletes);
+            Segment target = merged.segment();
+            List<Segment> snapshot;
+            BitSet targetDeletes;
+            lock.writeLock().lock();
+            try {
+                // Documents changed while merging now live elsewhere; drop their merged copy
+                for (int s = 0; s < sources.size(); s++) {
+                    int[] map = merged.ordinalMaps()[s];
+                    for (int ord = 0; ord < map.length; ord++) {
+                        if (map[ord] < 0) continue;
+                        String id = target.doc(map[ord]).id();
+                        Location location = live.get(id);
+                        if (location != null && location.segment() == sources.get(s) && location.ord() == ord) {
+                            live.put(id, new Location(target, map[ord]));
+                        } else {
+                            target.delete(map[ord]);
+                        }
+                    }
+                }
+                segments.removeAll(sources);
+                segments.add(0, target);
+                snapshot = new ArrayList<>(segments);
+                targetDeletes = target.copyDeletes();
+                target.setDeletesDirty(false);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                target.write(segmentFile(target));
+                Segment.writeDeletes(deletesFile(target), targetDeletes);
+                writeMeta(snapshot, commitTime);
+                for (Segment source : sources) {
+                    Files.deleteIfExists(segmentFile(source));
+                    Files.deleteIfExists(deletesFile(source));
+                }
+                logger.info("Merged {} search index segments into segment {} ({} documents)",
+                        sources.size(), target.getGeneration(), target.liveCount());
+            } catch (IOException e) {
+                logger.error("Writing merged search index segment failed: {}", e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    target.setDeletesDirty(true);
+                    dirty = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private void loadCommit() throws IOException {
+        Path meta = directory.resolve(META_FILE);
+        if (!Files.exists(meta)) {
+            rebuildRequired = true;
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            properties.load(in);
+        }
+        commitTime = Long.parseLong(properties.getProperty("commitTime", "0"));
+        nextGeneration = Long.parseLong(properties.getProperty("nextGeneration", "1"));
+        Set<Path> referenced = new HashSet<>();
+        referenced.add(meta);
+        String generations = properties.getProperty("generations", "");
+        for (String value : generations.split(",")) {
+            if (value.isBlank()) continue;
+            long generation = Long.parseLong(value.trim());
+            Segment segment = Segment.read(segmentFile(generation), generation);
+            segment.readDeletes(deletesFile(segment));
+            // Later segments supersede earlier copies of the same document
+            for (int ord = 0; ord < segment.docCount(); ord++) {
+                if (segment.isDeleted(ord)) continue;
+                Location previous = live.put(segment.doc(ord).id(), new Location(segment, ord));
+                if (previous != null) {
+                    previous.segment().delete(previous.ord());
+                }
+            }
+            segment.setDeletesDirty(false);
+            segments.add(segment);
+            referenced.add(segmentFile(segment));
+            referenced.add(deletesFile(segment));
+        }
+        // Files left behind by an interrupted commit or merge
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment*")) {
+            for (Path file : files) {
+                if (!referenced.contains(file)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        logger.info("Opened search index with {} segments and {} documents", segments.size(), live.size());
+    }
+
+    private void writeMeta(List<Segment> committed, long time) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("generations", committed.stream()
+                .map(segment -> String.valueOf(segment.getGeneration()))
+                .collect(Collectors.joining(",")));
+        properties.setProperty("nextGeneration", String.valueOf(nextGeneration));
+        properties.setProperty("commitTime", String.valueOf(time));
+        Path tmp = directory.resolve(META_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "Search index commit point");
+        }
+        Files.move(tmp, directory.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentFile(Segment segment) {
+        return segmentFile(segment.getGeneration());
+    }
+
+    private Path segmentFile(long generation) {
+        return directory.resolve("segment-" + generation + ".idx");
+    }
+
+    private Path deletesFile(Segment segment) {
+        return directory.resolve("segment-" + segment.getGeneration() + ".del");
+    }
+}
@@ -0,0 +1,72 @@
+package com.dms.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed search query. Quoted text becomes a phrase clause, every other word a term clause,
+ * and all clauses must match. A word ending in {@code *}, and the last word of the query,
+ * also match as a prefix so results keep up while the user is typing.
+ */
+final class SearchQuery {
+
+    static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]*)\"?");
+
+    record Clause(List<String> terms, boolean prefix) {
+
+        boolean isPhrase() {
+            return terms.size() > 1;
+        }
+    }
+
+    private final List<Clause> clauses;
+
+    private SearchQuery(List<Clause> clauses) {
+        this.clauses = clauses;
+    }
+
+    List<Clause> getClauses() {
+        return clauses;
+    }
+
+    boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    static SearchQuery parse(String text) {
+        List<Clause> clauses = new ArrayList<>();
+        if (text == null) {
+            return new SearchQuery(clauses);
+        }
+        StringBuilder words = new StringBuilder();
+        Matcher matcher = PHRASE.matcher(text);
+        int last = 0;
+        while (matcher.find()) {
+            words.append(text, last, matcher.start()).append(' ');
+            List<String> phrase = SearchAnalyzer.tokenize(matcher.group(1));
+            if (!phrase.isEmpty()) {
+                clauses.add(new Clause(phrase, false));
+            }
+            last = matcher.end();
+        }
+        words.append(text.substring(last));
+
+        String remaining = words.toString().trim();
+        String[] parts = remaining.isEmpty() ? new String[0] : remaining.split("\\s+");
+        for (int p = 0; p < parts.length; p++) {
+            boolean wildcard = parts[p].endsWith("*");
+            boolean lastWord = p == parts.length - 1 && !text.endsWith("\"");
+            List<String> tokens = SearchAnalyzer.tokenize(parts[p]);
+            for (int t = 0; t < tokens.size(); t++) {
+                String token = tokens.get(t);
+                boolean prefix = (wildcard || lastWord) && t == tokens.size() - 1 && token.length() >= MIN_PREFIX_LENGTH;
+                clauses.add(new Clause(List.of(token), prefix));
+            }
+        }
+        return new SearchQuery(clauses);
+    }
+}
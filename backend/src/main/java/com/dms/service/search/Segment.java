@@ -0,0 +1,338 @@
+package com.dms.service.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A unit of the search index. New documents go into the single open segment; on commit it is
+ * sealed and written to disk, and from then on only its deletion bits change. Updating a
+ * document deletes it from the segment holding it and adds it to the open one.
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x444d5349; // "DMSI"
+    private static final int FORMAT_VERSION = 1;
+
+    /** Stored per-document data: the id and what is needed to filter results by access. */
+    record DocEntry(String id, Long owner, boolean isPublic, long[] allowedUsers, int[] fieldLengths) {
+
+        boolean isVisibleTo(Long userId) {
+            if (isPublic || (owner != null && owner.equals(userId))) {
+                return true;
+            }
+            if (userId != null) {
+                for (long allowed : allowedUsers) {
+                    if (allowed == userId) return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Result of merging segments: the new segment and, per source, old ordinal to new (-1 if dropped). */
+    record Merged(Segment segment, int[][] ordinalMaps) {}
+
+    private final long generation;
+    private final List<DocEntry> docs = new ArrayList<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final long[] fieldLengthTotals = new long[SearchField.values().length];
+    private final BitSet deleted = new BitSet();
+    private boolean deletesDirty;
+
+    Segment(long generation) {
+        this.generation = generation;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    int add(DocEntry entry, Map<String, int[]> termPositions) {
+        int ord = docs.size();
+        docs.add(entry);
+        for (int f = 0; f < fieldLengthTotals.length; f++) {
+            fieldLengthTotals[f] += entry.fieldLengths()[f];
+        }
+        termPositions.forEach((term, positions) -> terms.computeIfAbsent(term, t -> new Postings()).add(ord, positions));
+        return ord;
+    }
+
+    void delete(int ord) {
+        if (!deleted.get(ord)) {
+            deleted.set(ord);
+            deletesDirty = true;
+        }
+    }
+
+    boolean isDeleted(int ord) {
+        return deleted.get(ord);
+    }
+
+    BitSet copyDeletes() {
+        return (BitSet) deleted.clone();
+    }
+
+    boolean hasDirtyDeletes() {
+        return deletesDirty;
+    }
+
+    void setDeletesDirty(boolean deletesDirty) {
+        this.deletesDirty = deletesDirty;
+    }
+
+    int docCount() {
+        return docs.size();
+    }
+
+    int liveCount() {
+        return docs.size() - deleted.cardinality();
+    }
+
+    DocEntry doc(int ord) {
+        return docs.get(ord);
+    }
+
+    long fieldLengthTotal(int field) {
+        return fieldLengthTotals[field];
+    }
+
+    Postings postings(String term) {
+        return terms.get(term);
+    }
+
+    NavigableMap<String, Postings> termsWithPrefix(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    // --- persistence -------------------------------------------------------------------------
+
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(fieldLengthTotals.length);
+            out.writeInt(docs.size());
+            for (DocEntry doc : docs) {
+                out.writeUTF(doc.id());
+                out.writeLong(doc.owner() != null ? doc.owner() : Long.MIN_VALUE);
+                out.writeBoolean(doc.isPublic());
+                writeVInt(out, doc.allowedUsers().length);
+                for (long allowed : doc.allowedUsers()) {
+                    out.writeLong(allowed);
+                }
+                for (int length : doc.fieldLengths()) {
+                    writeVInt(out, length);
+                }
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings postings = entry.getValue();
+                out.writeUTF(entry.getKey());
+                writeVInt(out, postings.size());
+                int previousDoc = 0;
+                for (int i = 0; i < postings.size(); i++) {
+                    // Ordinals and positions ascend, so deltas keep most of them to one byte
+                    writeVInt(out, postings.doc(i) - previousDoc);
+                    previousDoc = postings.doc(i);
+                    int[] positions = postings.positions(i);
+                    writeVInt(out, positions.length);
+                    int previousPosition = 0;
+                    for (int position : positions) {
+                        writeVInt(out, position - previousPosition);
+                        previousPosition = position;
+                    }
+                }
+            }
+            out.flush();
+            fileOut.write(longBytes(crc.getValue()));
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Segment read(Path file, long generation) throws IOException {
+        Segment segment = new Segment(generation);
+        CRC32 crc = new CRC32();
+        try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             DataInputStream in = new DataInputStream(new CheckedInputStream(fileIn, crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported index segment " + file);
+            }
+            int storedFields = in.readInt();
+            int fieldCount = segment.fieldLengthTotals.length;
+            int docCount = in.readInt();
+            for (int d = 0; d < docCount; d++) {
+                String id = in.readUTF();
+                long owner = in.readLong();
+                boolean isPublic = in.readBoolean();
+                long[] allowed = new long[readVInt(in)];
+                for (int i = 0; i < allowed.length; i++) {
+                    allowed[i] = in.readLong();
+                }
+                // Segments written before a field was added simply have no terms in it
+                int[] lengths = new int[fieldCount];
+                for (int f = 0; f < storedFields; f++) {
+                    int length = readVInt(in);
+                    if (f < fieldCount) lengths[f] = length;
+                }
+                segment.docs.add(new DocEntry(id, owner == Long.MIN_VALUE ? null : owner, isPublic, allowed, lengths));
+                for (int f = 0; f < fieldCount; f++) {
+                    segment.fieldLengthTotals[f] += lengths[f];
+                }
+            }
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int size = readVInt(in);
+                Postings postings = new Postings(size);
+                int doc = 0;
+                for (int i = 0; i < size; i++) {
+                    doc += readVInt(in);
+                    int[] positions = new int[readVInt(in)];
+                    int position = 0;
+                    for (int p = 0; p < positions.length; p++) {
+                        position += readVInt(in);
+                        positions[p] = position;
+                    }
+                    postings.add(doc, positions);
+                }
+                segment.terms.put(term, postings);
+            }
+            long expected = crc.getValue();
+            if (readLong(fileIn) != expected) {
+                throw new IOException("Checksum mismatch in index segment " + file);
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Writes deletion bits taken with {@link #copyDeletes()} while the index lock was held.
+     */
+    static void writeDeletes(Path file, BitSet deletes) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long[] words = deletes.toLongArray();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void readDeletes(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            deleted.or(BitSet.valueOf(words));
+        }
+    }
+
+    // --- merging -----------------------------------------------------------------------------
+
+    /**
+     * Merges the live documents of the given segments into one. Postings are concatenated term
+     * by term with remapped ordinals; no document has to be re-analysed.
+     */
+    static Merged merge(long generation, List<Segment> sources, List<BitSet> deletes) {
+        Segment merged = new Segment(generation);
+        int[][] ordinalMaps = new int[sources.size()][];
+        for (int s = 0; s < sources.size(); s++) {
+            Segment source = sources.get(s);
+            BitSet sourceDeletes = deletes.get(s);
+            int[] map = new int[source.docCount()];
+            for (int ord = 0; ord < map.length; ord++) {
+                if (sourceDeletes.get(ord)) {
+                    map[ord] = -1;
+                    continue;
+                }
+                DocEntry entry = source.doc(ord);
+                map[ord] = merged.docs.size();
+                merged.docs.add(entry);
+                for (int f = 0; f < merged.fieldLengthTotals.length; f++) {
+                    merged.fieldLengthTotals[f] += entry.fieldLengths()[f];
+                }
+            }
+            ordinalMaps[s] = map;
+            // Ordinals of later sources are all higher, so appending keeps every list sorted
+            for (Map.Entry<String, Postings> entry : source.terms.entrySet()) {
+                Postings postings = entry.getValue();
+                Postings target = null;
+                for (int i = 0; i < postings.size(); i++) {
+                    int newOrd = map[postings.doc(i)];
+                    if (newOrd < 0) continue;
+                    if (target == null) {
+                        target = merged.terms.computeIfAbsent(entry.getKey(), t -> new Postings());
+                    }
+                    target.add(newOrd, postings.positions(i));
+                }
+            }
+        }
+        return new Merged(merged, ordinalMaps);
+    }
+
+    // --- encoding helpers --------------------------------------------------------------------
+
+    private static void writeVInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        byte[] bytes = in.readNBytes(8);
+        if (bytes.length != 8) {
+            throw new IOException("Truncated index segment");
+        }
+        long value = 0;
+        for (byte b : bytes) {
+            value = value << 8 | (b & 0xFF);
+        }
+        return value;
+    }
+}
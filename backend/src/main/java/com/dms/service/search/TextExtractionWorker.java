@@ -0,0 +1,162 @@
+package com.dms.service.search;
+
+import com.dms.entity.Document;
+import com.dms.entity.DocumentJob;
+import com.dms.entity.TextStatus;
+import com.dms.service.DocumentJobWorker;
+import com.dms.service.storage.ContentStorageService;
+import com.dms.service.storage.StoredContent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Background stage that extracts the text of uploaded documents for the search index.
+ * <p>
+ * Extracted text is capped at {@code app.extraction.max-chars} per document, spooled to a temp
+ * file and stored in the content store, and the document is then re-indexed; the index reads
+ * the text back in bounded chunks. Settings live under {@code app.extraction}.
+ */
+@Component
+public class TextExtractionWorker extends DocumentJobWorker {
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Autowired
+    private TextExtractor textExtractor;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Value("${app.extraction.max-chars:1000000}")
+    private long maxChars;
+
+    public TextExtractionWorker() {
+        super(DocumentJob.Type.TEXT_EXTRACTION, "app.extraction");
+    }
+
+    public boolean supports(String contentType) {
+        return textExtractor.supports(contentType);
+    }
+
+    /**
+     * Queues extraction for documents stored before text extraction existed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Thread thread = new Thread(() -> {
+            Query query = new Query(Criteria.where("textStatus").exists(false)
+                    .and("isDeleted").is(false)
+                    .and("contentRef").exists(true));
+            query.fields().include("id", "contentType");
+            AtomicLong queued = new AtomicLong();
+            try (Stream<Document> documents = mongoTemplate.stream(query, Document.class)) {
+                documents.forEach(document -> {
+                    boolean supported = supports(document.getContentType());
+                    setStatus(document.getId(), supported ? TextStatus.PENDING : TextStatus.NONE);
+                    if (supported) {
+                        enqueue(document.getId());
+                        queued.incrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("Text extraction backfill failed", e);
+            }
+            if (queued.get() > 0) {
+                logger.info("Queued text extraction for {} existing documents", queued.get());
+            }
+        }, "text-extraction-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Scheduled(fixedDelayString = "${app.extraction.poll-interval-ms:5000}")
+    public void poll() {
+        dispatch();
+    }
+
+    @Override
+    protected void process(Document document) throws Exception {
+        if (document.getContentRef() == null || !supports(document.getContentType())) {
+            setStatus(document.getId(), TextStatus.NONE);
+            return;
+        }
+
+        Path spool = Files.createTempFile("extract-", ".txt");
+        try {
+            try (InputStream content = contentStorageService.open(document.getContentRef());
+                 Writer writer = Files.newBufferedWriter(spool, StandardCharsets.UTF_8);
+                 TextExtractor.LimitedWriter out = new TextExtractor.LimitedWriter(writer, maxChars)) {
+                textExtractor.extract(content, document.getContentType(), document.getOriginalFilename(), out);
+            }
+
+            StoredContent stored;
+            try (InputStream text = Files.newInputStream(spool)) {
+                stored = contentStorageService.store(text, document.getId() + ".txt", "text/plain;charset=UTF-8");
+            }
+            Document previous;
+            try {
+                Update update = new Update()
+                        .set("textRef", stored.getContentRef())
+                        .set("textStatus", TextStatus.READY)
+                        .set("textExtractedAt", LocalDateTime.now());
+                Query query = extractedFrom(document);
+                query.fields().include("textRef");
+                previous = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Document.class);
+            } catch (RuntimeException e) {
+                contentStorageService.delete(stored.getContentRef());
+                throw e;
+            }
+            if (previous == null) {
+                logger.debug("Discarding extracted text of document {}, its content changed while extracting", document.getId());
+                contentStorageService.delete(stored.getContentRef());
+                return;
+            }
+            // The text actually replaced, which may be newer than the one the job started with
+            if (previous.getTextRef() != null) {
+                contentStorageService.delete(previous.getTextRef());
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+
+        // Re-read so the index sees metadata changes made while the text was being extracted
+        documentRepository.findMetadataById(document.getId()).ifPresent(searchIndex::index);
+    }
+
+    @Override
+    protected void onFailure(Document document, Exception lastError) {
+        mongoTemplate.updateFirst(extractedFrom(document),
+                new Update().set("textStatus", TextStatus.FAILED), Document.class);
+    }
+
+    /**
+     * Matches the document only while its content is still the one the job extracted. A newer
+     * version queues its own job, and this one must not overwrite that job's text.
+     */
+    private Query extractedFrom(Document document) {
+        return new Query(Criteria.where("id").is(document.getId()).and("contentRef").is(document.getContentRef()));
+    }
+
+    private void setStatus(String documentId, TextStatus status) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(documentId)),
+                new Update().set("textStatus", status), Document.class);
+    }
+}
@@ -0,0 +1,138 @@
+package com.dms.service.search;
+
+import com.dms.service.thumbnail.ConverterPool;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Extracts plain text from document content: text files are decoded as UTF-8, PDFs go through
+ * PDFBox page by page, and Office documents are converted to PDF with LibreOffice first.
+ * Output is written to a {@link LimitedWriter} and extraction stops once it is full.
+ */
+@Component
+public class TextExtractor {
+
+    @Autowired
+    private ConverterPool converterPool;
+
+    @Value("${app.extraction.pdf-max-main-memory-bytes:16777216}")
+    private long pdfMaxMainMemoryBytes;
+
+    public boolean supports(String contentType) {
+        if (contentType == null) return false;
+        return isText(contentType)
+                || contentType.equals("application/pdf")
+                || ConverterPool.isOfficeDocument(contentType);
+    }
+
+    public void extract(InputStream content, String contentType, String originalFilename, LimitedWriter out) throws Exception {
+        if (isText(contentType)) {
+            extractText(content, out);
+        } else if (contentType.equals("application/pdf")) {
+            try (PDDocument doc = PDDocument.load(content, pdfMemoryUsage())) {
+                extractPdf(doc, out);
+            }
+        } else if (ConverterPool.isOfficeDocument(contentType)) {
+            extractOffice(content, originalFilename, out);
+        }
+    }
+
+    private void extractText(InputStream content, LimitedWriter out) throws IOException {
+        Reader reader = new InputStreamReader(content, StandardCharsets.UTF_8);
+        char[] buffer = new char[8192];
+        int read;
+        while (!out.isFull() && (read = reader.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private void extractPdf(PDDocument doc, LimitedWriter out) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        // One page at a time, so a large document stops being parsed once the limit is hit
+        for (int page = 1; page <= doc.getNumberOfPages() && !out.isFull(); page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            stripper.writeText(doc, out);
+        }
+    }
+
+    private void extractOffice(InputStream content, String originalFilename, LimitedWriter out) throws Exception {
+        Path tempDir = Files.createTempDirectory("extract-office-");
+        try {
+            Path input = tempDir.resolve(ConverterPool.safeFileName(originalFilename));
+            Files.copy(content, input);
+            Path pdf = converterPool.convertWithLibreOffice(input, tempDir, "pdf");
+            if (Files.exists(pdf)) {
+                try (PDDocument doc = PDDocument.load(pdf.toFile(), pdfMemoryUsage())) {
+                    extractPdf(doc, out);
+                }
+            }
+        } finally {
+            ConverterPool.deleteRecursively(tempDir);
+        }
+    }
+
+    private MemoryUsageSetting pdfMemoryUsage() {
+        return MemoryUsageSetting.setupMixed(pdfMaxMainMemoryBytes);
+    }
+
+    private static boolean isText(String contentType) {
+        return contentType.startsWith("text/")
+                || contentType.equals("application/json")
+                || contentType.equals("application/xml");
+    }
+
+    /**
+     * Writer that passes on at most {@code limit} characters and silently drops the rest.
+     */
+    public static final class LimitedWriter extends Writer {
+        private final Writer out;
+        private final long limit;
+        private long written;
+
+        public LimitedWriter(Writer out, long limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        public boolean isFull() {
+            return written >= limit;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int allowed = (int) Math.min(len, limit - written);
+            if (allowed > 0) {
+                out.write(cbuf, off, allowed);
+                written += allowed;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.dms.service.storage;
+
+import com.dms.entity.ContentBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Content-addressed, deduplicated document content.
+ * <p>
+ * An upload is streamed into the content store once, hashing it on the way. The SHA-256 is
+ * then looked up in the {@code content_blobs} registry. If identical bytes are already stored,
+ * from any document, revision or user, the new copy is deleted and the existing blob gains a
+ * reference. A blob is deleted from the store only when its last reference is released.
+ * <p>
+ * Content stored before the registry existed is not registered. Its references are exclusive,
+ * and {@link #release} deletes it directly.
+ */
+@Service
+public class ContentBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentBlobService.class);
+
+    @Autowired
+    private UploadPipeline uploadPipeline;
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Stores the stream and takes one reference on the resulting blob, which may be an
+     * existing copy of the same bytes.
+     */
+    public StoredContent ingest(InputStream in, String filename, String declaredContentType) throws IOException {
+        StoredContent stored = uploadPipeline.ingest(in, filename, declaredContentType);
+        ContentBlob blob;
+        try {
+            blob = acquire(stored);
+        } catch (RuntimeException e) {
+            contentStorageService.delete(stored.getContentRef());
+            throw e;
+        }
+        if (blob.getContentRef().equals(stored.getContentRef())) {
+            return stored;
+        }
+        // Identical bytes were already stored; keep that copy
+        contentStorageService.delete(stored.getContentRef());
+        return new StoredContent(blob.getContentRef(), stored.getSize(), stored.getChecksum(), stored.getContentType());
+    }
+
+    /**
+     * Drops one reference to the content and deletes it from the store once nothing refers to
+     * it any more.
+     *
+     * @return the number of bytes freed in the store, 0 if the content is still referenced
+     */
+    public long release(String checksum, String contentRef) {
+        if (contentRef == null) {
+            return 0;
+        }
+        ContentBlob blob = checksum == null ? null : mongoTemplate.findAndModify(
+                new Query(Criteria.where("checksum").is(checksum).and("contentRef").is(contentRef).and("refCount").gt(0)),
+                new Update().inc("refCount", -1),
+                FindAndModifyOptions.options().returnNew(true),
+                ContentBlob.class);
+        if (blob == null) {
+            // Not in the registry: content from before deduplication, owned by this reference alone
+            return deleteContent(contentRef);
+        }
+        if (blob.getRefCount() > 0) {
+            return 0;
+        }
+        // Only delete if no upload took a new reference since the count reached zero
+        boolean removed = mongoTemplate.remove(
+                new Query(Criteria.where("checksum").is(checksum).and("refCount").lte(0)), ContentBlob.class)
+                .getDeletedCount() > 0;
+        return removed ? deleteContent(contentRef) : 0;
+    }
+
+    private ContentBlob acquire(StoredContent stored) {
+        Query query = new Query(Criteria.where("checksum").is(stored.getChecksum()));
+        Update update = new Update()
+                .setOnInsert("contentRef", stored.getContentRef())
+                .setOnInsert("size", stored.getSize())
+                .setOnInsert("createdAt", LocalDateTime.now())
+                .inc("refCount", 1);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        try {
+            return mongoTemplate.findAndModify(query, update, options, ContentBlob.class);
+        } catch (DuplicateKeyException e) {
+            // Two uploads of the same bytes raced to insert the entry; the loser now finds it
+            return mongoTemplate.findAndModify(query, update, options, ContentBlob.class);
+        }
+    }
+
+    private long deleteContent(String contentRef) {
+        long size = 0;
+        try {
+            size = contentStorageService.size(contentRef);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not determine the size of {}: {}", contentRef, e.getMessage());
+        }
+        return contentStorageService.delete(contentRef) ? size : 0;
+    }
+}
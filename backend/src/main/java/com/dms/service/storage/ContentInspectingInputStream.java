@@ -0,0 +1,93 @@
+package com.dms.service.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Pass-through stream that enforces a size limit and computes a SHA-256 checksum
+ * while the content store consumes it, so an upload is read exactly once.
+ */
+public class ContentInspectingInputStream extends FilterInputStream {
+
+    private final long maxSize;
+    private final MessageDigest digest;
+    private long count;
+
+    public ContentInspectingInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            digest.update(b, off, read);
+            advance(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes still have to go through the digest
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String getChecksum() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void advance(int read) throws IOException {
+        count += read;
+        if (count > maxSize) {
+            throw new IOException("File size exceeds maximum allowed size");
+        }
+    }
+}
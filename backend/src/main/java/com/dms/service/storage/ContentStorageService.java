@@ -0,0 +1,78 @@
+package com.dms.service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes content references to the {@link ContentStore} that owns them. New content is
+ * written to the store selected by {@code app.storage.type}; existing references keep
+ * resolving against the store that wrote them, so the setting can be changed safely.
+ */
+@Service
+public class ContentStorageService {
+
+    private final Map<String, ContentStore> stores = new HashMap<>();
+
+    @Value("${app.storage.type:gridfs}")
+    private String storageType;
+
+    public ContentStorageService(List<ContentStore> contentStores) {
+        for (ContentStore store : contentStores) {
+            stores.put(store.getScheme(), store);
+        }
+    }
+
+    public StoredContent store(InputStream in, String filename, String contentType) throws IOException {
+        ContentStore store = getWriteStore();
+        String key = store.store(in, filename, contentType);
+        return new StoredContent(store.getScheme() + ":" + key, store.size(key));
+    }
+
+    public InputStream open(String contentRef) throws IOException {
+        return getStore(contentRef).open(keyOf(contentRef));
+    }
+
+    public long size(String contentRef) throws IOException {
+        return getStore(contentRef).size(keyOf(contentRef));
+    }
+
+    public void transferTo(String contentRef, long position, long count, OutputStream out) throws IOException {
+        getStore(contentRef).transferTo(keyOf(contentRef), position, count, out);
+    }
+
+    public boolean delete(String contentRef) {
+        return getStore(contentRef).delete(keyOf(contentRef));
+    }
+
+    private ContentStore getWriteStore() {
+        String scheme = "filesystem".equalsIgnoreCase(storageType) ? FileSystemContentStore.SCHEME : storageType;
+        ContentStore store = stores.get(scheme);
+        if (store == null) {
+            throw new IllegalStateException("Unknown storage type: " + storageType);
+        }
+        return store;
+    }
+
+    private ContentStore getStore(String contentRef) {
+        int separator = contentRef != null ? contentRef.indexOf(':') : -1;
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid content reference: " + contentRef);
+        }
+        ContentStore store = stores.get(contentRef.substring(0, separator));
+        if (store == null) {
+            throw new IllegalArgumentException("No content store for reference: " + contentRef);
+        }
+        return store;
+    }
+
+    private static String keyOf(String contentRef) {
+        return contentRef.substring(contentRef.indexOf(':') + 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.dms.service.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Backend that keeps raw document bytes outside of the document metadata record.
+ * Implementations are addressed through {@link ContentStorageService} using
+ * references of the form {@code <scheme>:<key>}.
+ */
+public interface ContentStore {
+
+    String getScheme();
+
+    /**
+     * Writes the stream to the store in fixed-size chunks and returns the key of the new blob.
+     */
+    String store(InputStream in, String filename, String contentType) throws IOException;
+
+    InputStream open(String key) throws IOException;
+
+    long size(String key) throws IOException;
+
+    /**
+     * Copies {@code count} bytes starting at {@code position} to the output stream.
+     * Stores with random access should override this to avoid reading the skipped prefix.
+     */
+    default void transferTo(String key, long position, long count, OutputStream out) throws IOException {
+        try (InputStream in = open(key)) {
+            in.skipNBytes(position);
+            byte[] buffer = new byte[8192];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("Unexpected end of content: " + key);
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    boolean delete(String key);
+}
@@ -0,0 +1,92 @@
+package com.dms.service.storage;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Detects common file formats from their leading magic bytes.
+ */
+public final class ContentTypeSniffer {
+
+    public static final int HEAD_SIZE = 512;
+
+    private ContentTypeSniffer() {}
+
+    public static String sniff(byte[] head, int length) {
+        if (length <= 0) {
+            return null;
+        }
+        if (startsWith(head, length, 0, "%PDF-".getBytes(StandardCharsets.US_ASCII))) {
+            return "application/pdf";
+        }
+        if (startsWith(head, length, 0, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'})) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF})) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0, "GIF87a".getBytes(StandardCharsets.US_ASCII))
+                || startsWith(head, length, 0, "GIF89a".getBytes(StandardCharsets.US_ASCII))) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 0, "RIFF".getBytes(StandardCharsets.US_ASCII))
+                && startsWith(head, length, 8, "WEBP".getBytes(StandardCharsets.US_ASCII))) {
+            return "image/webp";
+        }
+        if (startsWith(head, length, 4, "ftyp".getBytes(StandardCharsets.US_ASCII))) {
+            return "video/mp4";
+        }
+        if (startsWith(head, length, 0, new byte[]{'P', 'K', 0x03, 0x04})) {
+            return "application/zip";
+        }
+        if (startsWith(head, length, 0, "Rar!".getBytes(StandardCharsets.US_ASCII))) {
+            return "application/vnd.rar";
+        }
+        if (startsWith(head, length, 0, new byte[]{(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0})) {
+            return "application/x-ole-storage";
+        }
+        if (looksLikeText(head, length)) {
+            return "text/plain";
+        }
+        return null;
+    }
+
+    /**
+     * Picks the content type to record for an upload. The client-declared type wins unless it
+     * is missing or generic, or it claims a format we can recognise and the bytes disagree.
+     */
+    public static String resolve(String declared, String sniffed) {
+        if (sniffed == null) {
+            return declared != null ? declared : "application/octet-stream";
+        }
+        if (declared == null || declared.isBlank() || declared.equals("application/octet-stream")) {
+            return sniffed;
+        }
+        boolean declaredIsSniffable = declared.startsWith("image/") || declared.equals("application/pdf");
+        if (declaredIsSniffable && !declared.equals(sniffed) && !sniffed.equals("text/plain")) {
+            return sniffed;
+        }
+        return declared;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, byte[] magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean looksLikeText(byte[] head, int length) {
+        for (int i = 0; i < length; i++) {
+            int b = head[i] & 0xFF;
+            if (b == 0 || (b < 0x09) || (b > 0x0D && b < 0x20 && b != 0x1B)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
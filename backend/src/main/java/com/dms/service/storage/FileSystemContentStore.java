@@ -0,0 +1,106 @@
+package com.dms.service.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+@Component
+public class FileSystemContentStore implements ContentStore {
+
+    public static final String SCHEME = "fs";
+
+    @Value("${app.storage.filesystem.root:./uploads}")
+    private String root;
+
+    @Value("${app.storage.chunk-size:261120}")
+    private int chunkSize;
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public String store(InputStream in, String filename, String contentType) throws IOException {
+        String id = UUID.randomUUID().toString();
+        // Shard by the first two byte pairs of the id to keep directories small
+        String key = id.substring(0, 2) + "/" + id.substring(2, 4) + "/" + id;
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        Path temp = target.resolveSibling(id + ".part");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            byte[] buffer = new byte[chunkSize];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return key;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("Content not found: " + key);
+        }
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public void transferTo(String key, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < count) {
+                long n = channel.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    throw new EOFException("Unexpected end of content: " + key);
+                }
+                transferred += n;
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        try {
+            return Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Path resolve(String key) {
+        Path base = Paths.get(root).toAbsolutePath().normalize();
+        Path path = base.resolve(key).normalize();
+        if (!path.startsWith(base)) {
+            throw new IllegalArgumentException("Invalid content key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,102 @@
+package com.dms.service.storage;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+@Component
+public class GridFsContentStore implements ContentStore {
+
+    public static final String SCHEME = "gridfs";
+
+    @Autowired
+    private MongoDatabaseFactory mongoDatabaseFactory;
+
+    @Value("${app.storage.gridfs.bucket:document_content}")
+    private String bucketName;
+
+    @Value("${app.storage.chunk-size:261120}")
+    private int chunkSize;
+
+    private volatile GridFSBucket bucket;
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public String store(InputStream in, String filename, String contentType) throws IOException {
+        GridFSUploadOptions options = new GridFSUploadOptions()
+                .chunkSizeBytes(chunkSize)
+                .metadata(new Document("contentType", contentType));
+        ObjectId id = getBucket().uploadFromStream(filename, in, options);
+        return id.toHexString();
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        ObjectId id = toObjectId(key);
+        if (findFile(id) == null) {
+            throw new FileNotFoundException("Content not found: " + key);
+        }
+        return getBucket().openDownloadStream(id);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        GridFSFile file = findFile(toObjectId(key));
+        if (file == null) {
+            throw new FileNotFoundException("Content not found: " + key);
+        }
+        return file.getLength();
+    }
+
+    @Override
+    public boolean delete(String key) {
+        ObjectId id = toObjectId(key);
+        if (findFile(id) == null) {
+            return false;
+        }
+        getBucket().delete(id);
+        return true;
+    }
+
+    private GridFSFile findFile(ObjectId id) {
+        return getBucket().find(Filters.eq("_id", id)).first();
+    }
+
+    private GridFSBucket getBucket() {
+        GridFSBucket current = bucket;
+        if (current == null) {
+            synchronized (this) {
+                current = bucket;
+                if (current == null) {
+                    current = GridFSBuckets.create(mongoDatabaseFactory.getMongoDatabase(), bucketName)
+                            .withChunkSizeBytes(chunkSize);
+                    bucket = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static ObjectId toObjectId(String key) {
+        if (!ObjectId.isValid(key)) {
+            throw new IllegalArgumentException("Invalid GridFS content key: " + key);
+        }
+        return new ObjectId(key);
+    }
+}
@@ -0,0 +1,116 @@
+package com.dms.service.storage;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds streamed download responses that honour {@code Range} and {@code If-Range}
+ * request headers. Single ranges are answered with a plain 206, several ranges with a
+ * {@code multipart/byteranges} body. Content is written through a {@link ContentWriter}
+ * so nothing larger than a copy buffer is held in memory.
+ */
+public final class RangeStreamingResponse {
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(long position, long count, OutputStream out) throws IOException;
+    }
+
+    private RangeStreamingResponse() {}
+
+    public static ResponseEntity<StreamingResponseBody> build(HttpHeaders requestHeaders, long length,
+                                                              String contentType, String filename, String etag,
+                                                              ContentWriter writer) {
+        MediaType mediaType = contentType != null ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+
+        List<long[]> ranges;
+        try {
+            ranges = resolveRanges(requestHeaders, length, etag);
+        } catch (IllegalArgumentException e) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+
+        if (ranges.isEmpty()) {
+            headers.setContentType(mediaType);
+            headers.setContentLength(length);
+            return new ResponseEntity<>(out -> writer.write(0, length, out), headers, HttpStatus.OK);
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+            headers.setContentType(mediaType);
+            headers.setContentLength(end - start + 1);
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            return new ResponseEntity<>(out -> writer.write(start, end - start + 1, out), headers, HttpStatus.PARTIAL_CONTENT);
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        StreamingResponseBody body = out -> {
+            for (long[] range : ranges) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + mediaType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                writer.write(range[0], range[1] - range[0] + 1, out);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Returns the requested byte ranges as inclusive {start, end} pairs, or an empty list when
+     * the whole entity should be sent.
+     *
+     * @throws IllegalArgumentException when the ranges cannot be satisfied
+     */
+    static List<long[]> resolveRanges(HttpHeaders requestHeaders, long length, String etag) {
+        List<HttpRange> httpRanges = requestHeaders.getRange();
+        if (httpRanges.isEmpty()) {
+            return List.of();
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            // The client's copy is stale; send the full entity instead of a partial one
+            return List.of();
+        }
+
+        List<long[]> ranges = new ArrayList<>(httpRanges.size());
+        long total = 0;
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(length);
+            long end = httpRange.getRangeEnd(length);
+            if (start >= length || start > end) {
+                throw new IllegalArgumentException("Unsatisfiable range: " + httpRange);
+            }
+            total += end - start + 1;
+            ranges.add(new long[]{start, end});
+        }
+        if (ranges.size() > 1 && total > length) {
+            // Overlapping ranges that add up to more than the entity are a known amplification vector
+            throw new IllegalArgumentException("Requested ranges exceed content length");
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,36 @@
+package com.dms.service.storage;
+
+public class StoredContent {
+
+    private final String contentRef;
+    private final long size;
+    private final String checksum;
+    private final String contentType;
+
+    public StoredContent(String contentRef, long size) {
+        this(contentRef, size, null, null);
+    }
+
+    public StoredContent(String contentRef, long size, String checksum, String contentType) {
+        this.contentRef = contentRef;
+        this.size = size;
+        this.checksum = checksum;
+        this.contentType = contentType;
+    }
+
+    public String getContentRef() {
+        return contentRef;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
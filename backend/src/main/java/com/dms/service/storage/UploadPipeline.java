@@ -0,0 +1,41 @@
+package com.dms.service.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Single-pass ingestion of an upload stream. The content type is sniffed from a small
+ * buffered head, then the stream flows through a size limit and SHA-256 digest straight
+ * into the content store. Memory use per upload is bounded by the store's chunk buffer.
+ */
+@Component
+public class UploadPipeline {
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Value("${app.file.max-file-size}")
+    private Long maxFileSize;
+
+    public StoredContent ingest(InputStream source, String filename, String declaredContentType) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(source, 8192);
+        String contentType = ContentTypeSniffer.resolve(declaredContentType, sniff(buffered));
+
+        ContentInspectingInputStream inspecting = new ContentInspectingInputStream(buffered, maxFileSize);
+        StoredContent stored = contentStorageService.store(inspecting, filename, contentType);
+        return new StoredContent(stored.getContentRef(), inspecting.getCount(), inspecting.getChecksum(), contentType);
+    }
+
+    private static String sniff(BufferedInputStream in) throws IOException {
+        byte[] head = new byte[ContentTypeSniffer.HEAD_SIZE];
+        in.mark(head.length);
+        int length = in.readNBytes(head, 0, head.length);
+        in.reset();
+        return ContentTypeSniffer.sniff(head, length);
+    }
+}
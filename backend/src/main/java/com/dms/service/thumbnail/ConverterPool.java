@@ -0,0 +1,237 @@
+package com.dms.service.thumbnail;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Managed pool of external converter processes (LibreOffice and ffmpeg).
+ * <p>
+ * The pool has a fixed number of worker slots, which caps how many conversions run at once.
+ * Every slot owns a LibreOffice user profile that is initialised once at startup, so a
+ * conversion does not pay for profile creation, which is the bulk of the LibreOffice cold
+ * start. Each job runs with a timeout. A job that overruns has its whole process tree killed.
+ * A slot is recycled with a fresh profile after {@code app.converter.recycle-after} jobs or
+ * after a killed job.
+ */
+@Component
+public class ConverterPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConverterPool.class);
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("[A-Za-z0-9]{1,10}");
+
+    @Value("${app.converter.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${app.converter.timeout-seconds:60}")
+    private long timeoutSeconds;
+
+    @Value("${app.converter.acquire-timeout-seconds:120}")
+    private long acquireTimeoutSeconds;
+
+    @Value("${app.converter.recycle-after:50}")
+    private int recycleAfter;
+
+    @Value("${app.converter.libreoffice-command:libreoffice}")
+    private String libreOfficeCommand;
+
+    @Value("${app.converter.ffmpeg-command:ffmpeg}")
+    private String ffmpegCommand;
+
+    @Value("${app.converter.work-dir:${java.io.tmpdir}/dms-converters}")
+    private String workDir;
+
+    private BlockingQueue<Worker> idleWorkers;
+
+    private final List<Process> running = new ArrayList<>();
+
+    @PostConstruct
+    public void start() {
+        idleWorkers = new ArrayBlockingQueue<>(maxConcurrent);
+        // Warm the profiles off the startup path; each slot becomes available once it is warm
+        Thread warmer = new Thread(() -> {
+            for (int i = 0; i < maxConcurrent; i++) {
+                Worker worker = new Worker(i, Paths.get(workDir, "worker-" + i).toAbsolutePath());
+                recycle(worker);
+                idleWorkers.add(worker);
+            }
+        }, "converter-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        synchronized (running) {
+            running.forEach(this::kill);
+        }
+    }
+
+    /**
+     * Converts an Office document with LibreOffice and returns the produced file.
+     */
+    public Path convertWithLibreOffice(Path input, Path outDir, String targetFormat)
+            throws IOException, InterruptedException, TimeoutException {
+        Worker worker = acquire();
+        boolean healthy = false;
+        try {
+            run(List.of(libreOfficeCommand,
+                    "-env:UserInstallation=" + worker.profileDir.toUri(),
+                    "--headless", "--norestore", "--nologo", "--nolockcheck",
+                    "--convert-to", targetFormat, "--outdir", outDir.toString(), input.toString()));
+            healthy = true;
+        } finally {
+            release(worker, healthy);
+        }
+        return outDir.resolve(replaceExt(input.getFileName().toString(), targetFormat));
+    }
+
+    /**
+     * Grabs a single frame from a video with ffmpeg.
+     */
+    public void extractVideoFrame(Path input, Path output, String offset, int width)
+            throws IOException, InterruptedException, TimeoutException {
+        Worker worker = acquire();
+        try {
+            run(List.of(ffmpegCommand, "-y", "-ss", offset, "-i", input.toString(),
+                    "-vframes", "1", "-vf", "scale=" + width + ":-1", output.toString()));
+        } finally {
+            // ffmpeg does not touch the slot's LibreOffice profile, so there is nothing to recycle
+            idleWorkers.add(worker);
+        }
+    }
+
+    public int getAvailableWorkers() {
+        return idleWorkers.size();
+    }
+
+    private Worker acquire() throws InterruptedException, TimeoutException {
+        Worker worker = idleWorkers.poll(acquireTimeoutSeconds, TimeUnit.SECONDS);
+        if (worker == null) {
+            throw new TimeoutException("No converter available");
+        }
+        return worker;
+    }
+
+    private void release(Worker worker, boolean healthy) {
+        worker.jobs++;
+        if (!healthy || worker.jobs >= recycleAfter) {
+            recycle(worker);
+        }
+        idleWorkers.add(worker);
+    }
+
+    private void run(List<String> command) throws IOException, InterruptedException, TimeoutException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        // Output is never read; discarding it keeps a chatty process from blocking on a full pipe
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process process = pb.start();
+        synchronized (running) {
+            running.add(process);
+        }
+        try {
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                kill(process);
+                throw new TimeoutException(command.get(0) + " did not finish within " + timeoutSeconds + "s");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException(command.get(0) + " exited with status " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            kill(process);
+            throw e;
+        } finally {
+            synchronized (running) {
+                running.remove(process);
+            }
+        }
+    }
+
+    private void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private void warm(Worker worker) {
+        try {
+            Files.createDirectories(worker.profileDir);
+            run(List.of(libreOfficeCommand,
+                    "-env:UserInstallation=" + worker.profileDir.toUri(),
+                    "--headless", "--norestore", "--nologo", "--nolockcheck", "--terminate_after_init"));
+        } catch (Exception e) {
+            logger.debug("LibreOffice warm-up for converter {} failed: {}", worker.index, e.getMessage());
+        }
+    }
+
+    private void recycle(Worker worker) {
+        logger.debug("Recycling converter {} after {} jobs", worker.index, worker.jobs);
+        worker.jobs = 0;
+        deleteRecursively(worker.profileDir);
+        warm(worker);
+    }
+
+    public static boolean isOfficeDocument(String contentType) {
+        return contentType.contains("officedocument") || contentType.contains("msword") || contentType.contains("ms-excel") || contentType.contains("ms-powerpoint") || contentType.contains("vnd.openxmlformats");
+    }
+
+    /**
+     * File name to use for a client-supplied name inside a converter work directory. Names that
+     * could leave the directory, such as {@code ..} or anything with a {@code /} or {@code \},
+     * are replaced by a random name; a plain extension is kept so the converter still
+     * recognizes the format.
+     */
+    public static String safeFileName(String originalFilename) {
+        if (originalFilename != null && !originalFilename.isBlank()
+                && !originalFilename.equals(".") && !originalFilename.equals("..")
+                && originalFilename.chars().noneMatch(c -> c == '/' || c == '\\' || c == ':' || c < 0x20)) {
+            return originalFilename;
+        }
+        String extension = originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf('.') + 1) : "";
+        return UUID.randomUUID() + "." + (SAFE_EXTENSION.matcher(extension).matches() ? extension : "bin");
+    }
+
+    public static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try { Files.deleteIfExists(path); } catch (IOException ignored) {}
+            });
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String replaceExt(String name, String newExt) {
+        int i = name.lastIndexOf('.');
+        if (i >= 0) return name.substring(0, i + 1) + newExt;
+        return name + "." + newExt;
+    }
+
+    private static class Worker {
+        private final int index;
+        private final Path profileDir;
+        private int jobs;
+
+        Worker(int index, Path profileDir) {
+            this.index = index;
+            this.profileDir = profileDir;
+        }
+    }
+}
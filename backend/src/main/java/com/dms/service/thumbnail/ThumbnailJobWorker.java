@@ -0,0 +1,145 @@
+package com.dms.service.thumbnail;
+
+import com.dms.entity.Document;
+import com.dms.entity.DocumentJob;
+import com.dms.entity.ThumbnailStatus;
+import com.dms.service.DocumentJobWorker;
+import com.dms.service.NotificationService;
+import com.dms.service.storage.ContentStorageService;
+import com.dms.service.storage.StoredContent;
+import com.mongodb.client.result.UpdateResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Background stage that renders thumbnails for uploaded documents. Job handling is inherited
+ * from {@link DocumentJobWorker}; settings live under {@code app.thumbnail}.
+ */
+@Component
+public class ThumbnailJobWorker extends DocumentJobWorker {
+
+    @Autowired
+    private ContentStorageService contentStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    public ThumbnailJobWorker() {
+        super(DocumentJob.Type.THUMBNAIL, "app.thumbnail");
+    }
+
+    /**
+     * Listings no longer load the legacy inline thumbnail, so records that only have one are
+     * given an explicit status once at startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markLegacyThumbnails() {
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("thumbnailStatus").exists(false).and("thumbnailContent").exists(true)),
+                new Update().set("thumbnailStatus", ThumbnailStatus.READY), Document.class);
+    }
+
+    @Scheduled(fixedDelayString = "${app.thumbnail.poll-interval-ms:5000}")
+    public void poll() {
+        dispatch();
+    }
+
+    @Override
+    protected void process(Document document) throws Exception {
+        if (document.getContentRef() == null) {
+            return;
+        }
+        try (InputStream content = contentStorageService.open(document.getContentRef())) {
+            Map<String, byte[]> renditions = thumbnailService.generateRenditions(content, document.getContentType(), document.getOriginalFilename());
+            ThumbnailStatus status = renditions.isEmpty() ? ThumbnailStatus.NONE : ThumbnailStatus.READY;
+            if (storeRenditions(document, renditions, status)) {
+                notifyOwner(document, status);
+            }
+        }
+    }
+
+    @Override
+    protected void onFailure(Document document, Exception lastError) {
+        UpdateResult result = mongoTemplate.updateFirst(renderedFrom(document),
+                new Update().set("thumbnailStatus", ThumbnailStatus.FAILED), Document.class);
+        if (result.getMatchedCount() > 0) {
+            notifyOwner(document, ThumbnailStatus.FAILED);
+        }
+    }
+
+    /**
+     * Matches the document only while its content is still the one the job rendered. A newer
+     * version queues its own job, and this one must not overwrite that job's renditions.
+     */
+    private Query renderedFrom(Document document) {
+        return new Query(Criteria.where("id").is(document.getId()).and("contentRef").is(document.getContentRef()));
+    }
+
+    /**
+     * Stores the renditions and points the document at them. Returns false, having deleted
+     * them again, if the document was deleted or given new content in the meantime.
+     */
+    private boolean storeRenditions(Document document, Map<String, byte[]> renditions, ThumbnailStatus status) throws IOException {
+        Map<String, String> refs = new HashMap<>();
+        Document previous;
+        try {
+            for (Map.Entry<String, byte[]> rendition : renditions.entrySet()) {
+                String format = rendition.getKey().substring(0, rendition.getKey().indexOf('_'));
+                StoredContent stored = contentStorageService.store(new ByteArrayInputStream(rendition.getValue()),
+                        document.getId() + "-" + rendition.getKey(), ThumbnailService.mediaType(format));
+                refs.put(rendition.getKey(), stored.getContentRef());
+            }
+            // The version bump changes every thumbnail URL, so clients never see a stale cached rendition
+            Update update = new Update()
+                    .set("thumbnailStatus", status)
+                    .set("thumbnailRenditions", refs)
+                    .inc("thumbnailVersion", 1)
+                    .unset("thumbnailContent");
+            Query query = renderedFrom(document);
+            query.fields().include("thumbnailRenditions");
+            previous = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Document.class);
+        } catch (IOException | RuntimeException e) {
+            refs.values().forEach(this::deleteQuietly);
+            throw e;
+        }
+        if (previous == null) {
+            logger.debug("Discarding thumbnails of document {}, its content changed while rendering", document.getId());
+            refs.values().forEach(this::deleteQuietly);
+            return false;
+        }
+        // The renditions actually replaced, which may be newer than the ones the job started with
+        if (previous.getThumbnailRenditions() != null) {
+            previous.getThumbnailRenditions().values().forEach(this::deleteQuietly);
+        }
+        return true;
+    }
+
+    private void deleteQuietly(String ref) {
+        try {
+            contentStorageService.delete(ref);
+        } catch (Exception e) {
+            logger.warn("Could not delete thumbnail rendition {}: {}", ref, e.getMessage());
+        }
+    }
+
+    private void notifyOwner(Document document, ThumbnailStatus status) {
+        notificationService.sendEvent(document.getUploadedBy(), "thumbnail",
+                Map.of("documentId", document.getId(), "status", status.name()));
+    }
+}
@@ -0,0 +1,300 @@
+package com.dms.service.thumbnail;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders thumbnails for images, PDFs, videos (ffmpeg) and Office documents (LibreOffice).
+ * <p>
+ * Each document gets a set of renditions: every size in {@code app.thumbnail.sizes} encoded in
+ * every format of {@code app.thumbnail.formats} that this JVM can write. The source is rendered
+ * once at the largest size and the smaller renditions are scaled down from that image.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    @Autowired
+    private ConverterPool converterPool;
+
+    @Value("${app.thumbnail.pdf-max-main-memory-bytes:16777216}")
+    private long pdfMaxMainMemoryBytes;
+
+    @Value("${app.thumbnail.sizes:64,240,480}")
+    private List<Integer> sizes;
+
+    @Value("${app.thumbnail.formats:webp,jpeg,png}")
+    private List<String> formats;
+
+    @Value("${app.thumbnail.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    private List<String> writableFormats;
+
+    @PostConstruct
+    public void init() {
+        sizes = sizes.stream().distinct().sorted().toList();
+        writableFormats = new ArrayList<>();
+        for (String format : formats) {
+            String name = format.trim().toLowerCase(Locale.ROOT);
+            if (ImageIO.getImageWritersByFormatName(name).hasNext()) {
+                writableFormats.add(name);
+            } else {
+                logger.info("No ImageIO writer for thumbnail format '{}', skipping it", name);
+            }
+        }
+        if (writableFormats.isEmpty()) {
+            writableFormats.add("png");
+        }
+    }
+
+    /**
+     * Thumbnail widths in ascending order. Each rendition fits a box of {@code size x size*2/3}.
+     */
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    /**
+     * Formats that renditions are produced in, in order of preference.
+     */
+    public List<String> getFormats() {
+        return writableFormats;
+    }
+
+    public static String renditionKey(String format, int size) {
+        // Map keys end up as MongoDB field names, which must not contain dots
+        return format + "_" + size;
+    }
+
+    public static String mediaType(String format) {
+        return "image/" + format;
+    }
+
+    public boolean supports(String contentType) {
+        if (contentType == null) return false;
+        return contentType.startsWith("image/")
+                || contentType.equals("application/pdf")
+                || contentType.startsWith("video/")
+                || ConverterPool.isOfficeDocument(contentType);
+    }
+
+    /**
+     * Renders all configured renditions of the content, keyed by {@link #renditionKey}.
+     * Returns an empty map when the content type has no thumbnail.
+     */
+    public Map<String, byte[]> generateRenditions(InputStream content, String contentType, String originalFilename) throws Exception {
+        int largest = sizes.get(sizes.size() - 1);
+        BufferedImage image = renderThumbnail(content, contentType, originalFilename, largest, boxHeight(largest));
+        Map<String, byte[]> renditions = new LinkedHashMap<>();
+        if (image == null) return renditions;
+        for (int i = sizes.size() - 1; i >= 0; i--) {
+            int size = sizes.get(i);
+            // Scale from the previous (next larger) rendition rather than from the full render
+            image = scaleImage(image, size, boxHeight(size));
+            for (String format : writableFormats) {
+                renditions.put(renditionKey(format, size), encode(image, format));
+            }
+        }
+        return renditions;
+    }
+
+    /**
+     * Renders the content into an image that fits the given box. Memory and CPU depend on the
+     * box size rather than on the size of the source document.
+     */
+    public BufferedImage renderThumbnail(InputStream content, String contentType, String originalFilename,
+                                         int maxW, int maxH) throws Exception {
+        if (contentType == null) return null;
+        if (contentType.startsWith("image/")) {
+            return renderImage(content, maxW, maxH);
+        }
+        if (contentType.equals("application/pdf")) {
+            try (PDDocument doc = PDDocument.load(content, pdfMemoryUsage())) {
+                return renderPdfPage(doc, maxW, maxH);
+            }
+        }
+        if (contentType.startsWith("video/")) {
+            return renderVideoFrame(content, originalFilename, maxW, maxH);
+        }
+        // Basic support for common Office docs via LibreOffice -> PDF -> PNG
+        if (ConverterPool.isOfficeDocument(contentType)) {
+            return renderOfficeViaLibreOffice(content, originalFilename, maxW, maxH);
+        }
+        return null;
+    }
+
+    private BufferedImage renderImage(InputStream in, int maxW, int maxH) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                // Decode every n-th pixel so the decoded raster is only slightly larger than the box
+                int subsampling = Math.max(1, Math.min(w / maxW, h / maxH));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                return scaleImage(decoded, maxW, maxH);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage renderPdfPage(PDDocument doc, int maxW, int maxH) throws IOException {
+        if (doc.getNumberOfPages() == 0) return null;
+        PDPage page = doc.getPage(0);
+        PDRectangle box = page.getCropBox();
+        boolean rotated = page.getRotation() % 180 != 0;
+        float pageW = rotated ? box.getHeight() : box.getWidth();
+        float pageH = rotated ? box.getWidth() : box.getHeight();
+        // Scale is relative to 72 DPI; pick the one that makes the page fit the box exactly
+        float scale = Math.min(maxW / pageW, maxH / pageH);
+        PDFRenderer renderer = new PDFRenderer(doc);
+        renderer.setSubsamplingAllowed(true);
+        BufferedImage pageImage = renderer.renderImage(0, scale);
+        return scaleImage(pageImage, maxW, maxH);
+    }
+
+    private BufferedImage renderVideoFrame(InputStream content, String originalFilename, int maxW, int maxH) throws Exception {
+        Path tempDir = Files.createTempDirectory("thumb-video-");
+        try {
+            Path input = tempDir.resolve(ConverterPool.safeFileName(originalFilename));
+            Path output = tempDir.resolve("thumb.png");
+            Files.copy(content, input);
+            converterPool.extractVideoFrame(input, output, "00:00:01", maxW);
+            if (Files.exists(output)) {
+                BufferedImage frame = ImageIO.read(output.toFile());
+                return frame != null ? scaleImage(frame, maxW, maxH) : null;
+            }
+            return null;
+        } finally {
+            ConverterPool.deleteRecursively(tempDir);
+        }
+    }
+
+    private BufferedImage renderOfficeViaLibreOffice(InputStream content, String originalFilename, int maxW, int maxH) throws Exception {
+        Path tempDir = Files.createTempDirectory("thumb-office-");
+        try {
+            Path input = tempDir.resolve(ConverterPool.safeFileName(originalFilename));
+            Files.copy(content, input);
+            Path pdf = converterPool.convertWithLibreOffice(input, tempDir, "pdf");
+            if (Files.exists(pdf)) {
+                try (PDDocument doc = PDDocument.load(pdf.toFile(), pdfMemoryUsage())) {
+                    return renderPdfPage(doc, maxW, maxH);
+                }
+            }
+            return null;
+        } finally {
+            ConverterPool.deleteRecursively(tempDir);
+        }
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (format.equals("jpeg")) {
+            writeJpeg(flatten(image), out);
+        } else {
+            ImageIO.write(image, format, out);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeJpeg(BufferedImage image, ByteArrayOutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage flatten(BufferedImage src) {
+        // JPEG has no alpha channel; composite transparent areas onto white
+        BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, src.getWidth(), src.getHeight());
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static int boxHeight(int size) {
+        return Math.max(1, size * 2 / 3);
+    }
+
+    private MemoryUsageSetting pdfMemoryUsage() {
+        // Parsed PDF buffers spill to temp files beyond this limit instead of growing the heap
+        return MemoryUsageSetting.setupMixed(pdfMaxMainMemoryBytes);
+    }
+
+    private BufferedImage scaleImage(BufferedImage src, int maxW, int maxH) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double ratio = Math.min(1.0, Math.min((double) maxW / w, (double) maxH / h));
+        int newW = Math.max(1, (int) Math.round(w * ratio));
+        int newH = Math.max(1, (int) Math.round(h * ratio));
+        BufferedImage img = src;
+        // Halve in steps; a single bilinear pass over a large factor skips source pixels and aliases
+        do {
+            w = w / 2 >= newW ? w / 2 : newW;
+            h = h / 2 >= newH ? h / 2 : newH;
+            img = drawScaled(img, w, h);
+        } while (w != newW || h != newH);
+        return img;
+    }
+
+    private static BufferedImage drawScaled(BufferedImage src, int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return img;
+    }
+}
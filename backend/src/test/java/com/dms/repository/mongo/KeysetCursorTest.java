@@ -0,0 +1,47 @@
+package com.dms.repository.mongo;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void testRoundTripsEverySortValueType() {
+        List<Object> values = List.of(LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000), 42L, 0.8125f, "report\nfinal.pdf");
+        for (Object value : values) {
+            KeysetCursor cursor = new KeysetCursor("uploadDate", Sort.Direction.DESC, value, "65f0c0ffee");
+            assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+        }
+        KeysetCursor missing = new KeysetCursor("fileSize", Sort.Direction.ASC, null, "65f0c0ffee");
+        assertEquals(missing, KeysetCursor.decode(missing.encode()));
+    }
+
+    @Test
+    void testEmptyCursorMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+    }
+
+    @Test
+    void testRejectsTamperedCursorsAndOtherSortOrders() {
+        assertThrows(RuntimeException.class, () -> KeysetCursor.decode("not a cursor"));
+        KeysetCursor cursor = new KeysetCursor("fileSize", Sort.Direction.DESC, 10L, "a");
+        assertThrows(RuntimeException.class, () -> cursor.requireSort("fileSize", Sort.Direction.ASC));
+        assertThrows(RuntimeException.class, () -> cursor.requireSort("uploadDate", Sort.Direction.DESC));
+    }
+
+    @Test
+    void testSeekBoundsTheSortKeyAndBreaksTiesOnId() {
+        KeysetCursor cursor = new KeysetCursor("fileSize", Sort.Direction.DESC, 10L, "b");
+        Document criteria = KeysetQueries.seek("fileSize", Sort.Direction.DESC, cursor).getCriteriaObject();
+
+        assertEquals(new Document("$lte", 10L), criteria.get("fileSize"));
+        assertEquals(List.of(new Document("fileSize", 10L).append("id", new Document("$gte", "b"))), criteria.get("$nor"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.dms.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(executor, "threads", 1);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+        executor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    void testRunsHashAndRecordsStats() {
+        assertEquals("hashed", executor.execute(() -> "hashed"));
+
+        PasswordHashingExecutor.Stats stats = executor.stats();
+        assertEquals(1, stats.completed());
+        assertEquals(0, stats.rejected());
+        assertEquals(0, stats.queueDepth());
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> executor.execute(() -> {
+            running.countDown();
+            await(release);
+            return "first";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> executor.execute(() -> "second"));
+        while (executor.stats().queueDepth() == 0) {
+            Thread.sleep(5);
+        }
+
+        PasswordHashingRejectedException rejected =
+                assertThrows(PasswordHashingRejectedException.class, () -> executor.execute(() -> "third"));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        assertEquals(1, executor.stats().rejected());
+
+        release.countDown();
+        assertEquals("first", busy.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dms.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailUrlSignerTest {
+
+    private ThumbnailUrlSigner signer;
+
+    @BeforeEach
+    void setUp() {
+        signer = new ThumbnailUrlSigner();
+        ReflectionTestUtils.setField(signer, "secret", "9a825ec87975b699104c675aeb969f359c2b31510e701647ba1863d68d7d93b9");
+        signer.init();
+    }
+
+    @Test
+    void testSignatureIsStableAndBoundToUserDocumentVersionAndDay() {
+        long day = signer.currentDay();
+        String signature = signer.sign(7L, "doc", 3, day);
+
+        assertEquals(signature, signer.sign(7L, "doc", 3, day));
+        assertTrue(signer.verify(7L, "doc", 3, day, signature));
+        assertFalse(signer.verify(8L, "doc", 3, day, signature));
+        assertFalse(signer.verify(7L, "other", 3, day, signature));
+        assertFalse(signer.verify(7L, "doc", 4, day, signature));
+        assertFalse(signer.verify(7L, "doc", 3, day - 1, signature));
+        assertFalse(signer.verify(7L, "doc", 3, day, "not base64!"));
+    }
+
+    @Test
+    void testSignatureExpiresAfterTheFollowingDay() {
+        setNow("2026-03-01T23:59:00Z");
+        long day = signer.currentDay();
+        String signature = signer.sign(7L, "doc", 3, day);
+
+        setNow("2026-03-02T23:59:00Z");
+        assertTrue(signer.verify(7L, "doc", 3, day, signature));
+
+        setNow("2026-03-03T00:01:00Z");
+        assertFalse(signer.verify(7L, "doc", 3, day, signature));
+
+        // Issued for a day that hasn't come yet
+        setNow("2026-02-28T12:00:00Z");
+        assertFalse(signer.verify(7L, "doc", 3, day, signature));
+    }
+
+    private void setNow(String instant) {
+        ReflectionTestUtils.setField(signer, "clock", Clock.fixed(Instant.parse(instant), ZoneOffset.UTC));
+    }
+}
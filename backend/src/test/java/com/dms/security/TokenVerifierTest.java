@@ -0,0 +1,77 @@
+package com.dms.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVerifierTest {
+
+    private static final String SECRET = "9a825ec87975b699104c675aeb969f359c2b31510e701647ba1863d68d7d93b9";
+
+    private JwtTokenUtil jwtTokenUtil;
+    private TokenVerifier verifier;
+    private final UserDetails user = User.builder()
+            .username("testuser")
+            .password("password")
+            .authorities(new ArrayList<>())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenUtil = newTokenUtil(86400000L);
+        verifier = new TokenVerifier();
+        ReflectionTestUtils.setField(verifier, "jwtTokenUtil", jwtTokenUtil);
+        ReflectionTestUtils.setField(verifier, "maxCachedTokens", 2);
+        TokenRevocationList revocationList = new TokenRevocationList();
+        ReflectionTestUtils.setField(revocationList, "filter", new BloomFilter(100, 0.01));
+        ReflectionTestUtils.setField(revocationList, "loaded", true);
+        ReflectionTestUtils.setField(verifier, "revocationList", revocationList);
+    }
+
+    @Test
+    void testVerifiesOnceAndServesRepeatsFromCache() {
+        String token = jwtTokenUtil.generateToken(user, 7L);
+
+        TokenVerifier.VerifiedToken first = verifier.verify(token);
+        assertEquals("testuser", first.username());
+        assertEquals(7L, first.userId());
+        assertSame(first, verifier.verify(token));
+        assertEquals(1, verifier.cachedTokens());
+    }
+
+    @Test
+    void testRejectsTamperedAndExpiredTokens() {
+        String token = jwtTokenUtil.generateToken(user, 7L);
+        verifier.verify(token);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThrows(JwtException.class, () -> verifier.verify(tampered));
+
+        ReflectionTestUtils.setField(verifier, "jwtTokenUtil", newTokenUtil(-1000L));
+        String expired = ((JwtTokenUtil) ReflectionTestUtils.getField(verifier, "jwtTokenUtil")).generateToken(user, 7L);
+        assertThrows(ExpiredJwtException.class, () -> verifier.verify(expired));
+    }
+
+    @Test
+    void testCacheStaysBounded() {
+        for (long id = 1; id <= 5; id++) {
+            verifier.verify(jwtTokenUtil.generateToken(user, id));
+        }
+        assertEquals(2, verifier.cachedTokens());
+    }
+
+    private static JwtTokenUtil newTokenUtil(long expiration) {
+        JwtTokenUtil util = new JwtTokenUtil();
+        ReflectionTestUtils.setField(util, "secret", SECRET);
+        ReflectionTestUtils.setField(util, "expiration", expiration);
+        util.init();
+        return util;
+    }
+}
@@ -0,0 +1,108 @@
+package com.dms.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationBroadcasterTest {
+
+    private NotificationBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new NotificationBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "senderThreads", 2);
+        ReflectionTestUtils.setField(broadcaster, "queueCapacity", 2);
+        ReflectionTestUtils.setField(broadcaster, "maxConnectionsPerUser", 3);
+        ReflectionTestUtils.setField(broadcaster, "stallTimeoutMs", 30000L);
+        broadcaster.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        broadcaster.stop();
+    }
+
+    @Test
+    void testSendsToEveryConnectionOfTheUser() throws Exception {
+        RecordingEmitter laptop = new RecordingEmitter(null);
+        RecordingEmitter phone = new RecordingEmitter(null);
+        broadcaster.register(1L, laptop);
+        broadcaster.register(1L, phone);
+
+        broadcaster.send(1L, "notification", "hello");
+
+        assertTrue(laptop.received.await(5, TimeUnit.SECONDS));
+        assertTrue(phone.received.await(5, TimeUnit.SECONDS));
+        assertEquals(2, broadcaster.connectionCount(1L));
+    }
+
+    @Test
+    void testClosesOldestConnectionBeyondLimit() {
+        for (int i = 0; i < 5; i++) {
+            broadcaster.register(1L, new RecordingEmitter(null));
+        }
+        assertEquals(3, broadcaster.connectionCount(1L));
+    }
+
+    @Test
+    void testDropsSlowClientWithoutBlockingOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter other = new RecordingEmitter(null);
+        broadcaster.register(1L, slow);
+        broadcaster.register(2L, other);
+
+        // The slow client blocks on its first event; two more fill its queue and the next overflows it
+        broadcaster.send(1L, "notification", "event 0");
+        assertTrue(slow.writing.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 3; i++) {
+            broadcaster.send(1L, "notification", "event " + i);
+        }
+        assertEquals(0, broadcaster.connectionCount(1L));
+
+        broadcaster.send(2L, "notification", "hello");
+        assertTrue(other.received.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch received = new CountDownLatch(1);
+        private final List<SseEventBuilder> events = new CopyOnWriteArrayList<>();
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            writing.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(builder);
+            received.countDown();
+        }
+
+        @Override
+        public void complete() {
+        }
+    }
+}
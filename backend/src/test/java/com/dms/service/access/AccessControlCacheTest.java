@@ -0,0 +1,123 @@
+package com.dms.service.access;
+
+import com.dms.entity.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessControlCacheTest {
+
+    private static final Long OWNER = 1L;
+    private static final Long FRIEND = 2L;
+    private static final Long STRANGER = 3L;
+
+    private AccessControlCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AccessControlCache();
+        ReflectionTestUtils.setField(cache, "loaded", true);
+    }
+
+    @Test
+    void testTracksShareUnsharePublishAndDelete() {
+        Document document = document("a", false, List.of(FRIEND));
+        cache.put(document);
+        assertTrue(cache.canAccess(OWNER, document));
+        assertTrue(cache.canAccess(FRIEND, document));
+        assertFalse(cache.canAccess(STRANGER, document));
+
+        document.setAllowedUsers(List.of());
+        document.setPublic(true);
+        document.updateVisibleTo();
+        cache.put(document);
+        try (AccessControlCache.Reader reader = cache.reader(STRANGER)) {
+            assertEquals(Boolean.TRUE, reader.canAccess("a"));
+        }
+
+        document.setPublic(false);
+        document.updateVisibleTo();
+        cache.put(document);
+        try (AccessControlCache.Reader reader = cache.reader(FRIEND)) {
+            assertEquals(Boolean.FALSE, reader.canAccess("a"));
+        }
+
+        cache.remove("a");
+        try (AccessControlCache.Reader reader = cache.reader(OWNER)) {
+            assertNull(reader.canAccess("a"));
+        }
+    }
+
+    @Test
+    void testIgnoresPutsOlderThanTheRecordedVersion() {
+        Document shared = document("a", false, List.of(FRIEND));
+        shared.setLockVersion(1L);
+        Document unshared = document("a", false, List.of());
+        unshared.setLockVersion(2L);
+
+        // The unshare committed last but its put arrives first
+        cache.put(unshared);
+        cache.put(shared);
+
+        try (AccessControlCache.Reader reader = cache.reader(FRIEND)) {
+            assertEquals(Boolean.FALSE, reader.canAccess("a"));
+        }
+    }
+
+    @Test
+    void testFallsBackToTheDocumentUntilLoaded() {
+        ReflectionTestUtils.setField(cache, "loaded", false);
+        Document document = document("a", false, List.of(FRIEND));
+        cache.put(document);
+        document.setAllowedUsers(List.of(FRIEND, STRANGER));
+
+        assertTrue(cache.canAccess(STRANGER, document));
+    }
+
+    @Test
+    void testBitmapSwitchesContainersAndKeepsMembership() {
+        AccessBitmap bitmap = new AccessBitmap();
+        int count = AccessBitmap.ARRAY_MAX + 100;
+        // All below 65536, so they share one container
+        for (int i = 0; i < count; i++) {
+            assertTrue(bitmap.add(i * 3));
+        }
+        bitmap.add(1 << 20);
+        assertEquals("BitmapContainer", containerType(bitmap, 0));
+        assertEquals("ArrayContainer", containerType(bitmap, 1 << 20));
+        assertEquals(count + 1, bitmap.cardinality());
+        assertTrue(bitmap.contains(3 * (count - 1)));
+        assertFalse(bitmap.contains(3 * 100 + 1));
+        assertFalse(bitmap.add(3 * 100));
+
+        for (int i = 0; i < count; i += 2) {
+            assertTrue(bitmap.remove(i * 3));
+        }
+        assertEquals("ArrayContainer", containerType(bitmap, 0));
+        assertEquals(count / 2 + 1, bitmap.cardinality());
+        assertTrue(bitmap.contains(3));
+        assertFalse(bitmap.contains(6));
+        assertTrue(bitmap.contains(3 * (count - 1)));
+        assertFalse(bitmap.remove(6));
+        assertTrue(bitmap.contains(1 << 20));
+    }
+
+    private static String containerType(AccessBitmap bitmap, int value) {
+        Map<?, ?> containers = (Map<?, ?>) ReflectionTestUtils.getField(bitmap, "containers");
+        return containers.get(value >>> 16).getClass().getSimpleName();
+    }
+
+    private static Document document(String id, boolean isPublic, List<Long> allowedUsers) {
+        Document document = new Document(id, id, "text/plain", 1L, null, null, OWNER, "owner");
+        document.setId(id);
+        document.setPublic(isPublic);
+        document.setAllowedUsers(allowedUsers);
+        document.updateVisibleTo();
+        return document;
+    }
+}
@@ -0,0 +1,27 @@
+package com.dms.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchAnalyzerTest {
+
+    @Test
+    void testNormalizesCaseAndAccents() {
+        assertEquals(List.of("cafe", "resume", "2024", "final"), SearchAnalyzer.tokenize("Café RÉSUMÉ_2024-final"));
+    }
+
+    @Test
+    void testChunkedTokenizationMatchesWholeText() throws Exception {
+        String text = "Quarterly 𝔘nicode report, naïve totals and supercalifragilistic words. ".repeat(50);
+        for (int chunk : new int[]{2, 3, 7, 64}) {
+            List<String> tokens = new ArrayList<>();
+            SearchAnalyzer.tokenize(new StringReader(text), chunk, tokens::add);
+            assertEquals(SearchAnalyzer.tokenize(text), tokens, "chunk size " + chunk);
+        }
+    }
+}
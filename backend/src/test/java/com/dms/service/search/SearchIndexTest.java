@@ -0,0 +1,215 @@
+package com.dms.service.search;
+
+import com.dms.entity.Document;
+import com.dms.service.access.AccessControlCache;
+import com.dms.service.storage.ContentStorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private static final Long OWNER = 1L;
+    private static final Long OTHER = 2L;
+
+    @TempDir
+    Path dir;
+
+    private SearchIndex index;
+    private final CountDownLatch textReadable = new CountDownLatch(1);
+    // Serves "quarterly revenue forecast" as the extracted text, once textReadable is released
+    private final ContentStorageService textStore = new ContentStorageService(List.of()) {
+        @Override
+        public InputStream open(String contentRef) throws IOException {
+            try {
+                textReadable.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ByteArrayInputStream("quarterly revenue forecast".getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index = openIndex();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void testRanksFilenameMatchesAboveDescriptionMatches() {
+        index.index(document("a", "notes.txt", "quarterly budget draft", false));
+        index.index(document("b", "budget-2024.xlsx", null, false));
+
+        assertEquals(List.of("b", "a"), search("budget", OWNER));
+    }
+
+    @Test
+    void testPhraseRequiresAdjacentTerms() {
+        index.index(document("a", "report.pdf", "annual sales report", false));
+        index.index(document("b", "report.pdf", "sales figures, annual", false));
+
+        assertEquals(List.of("a"), search("\"annual sales\"", OWNER));
+        assertEquals(2, search("annual sales", OWNER).size());
+    }
+
+    @Test
+    void testLastWordMatchesAsPrefixAndQueryIsNotARegex() {
+        index.index(document("a", "invoice-march.pdf", null, false));
+
+        assertEquals(List.of("a"), search("inv", OWNER));
+        assertEquals(List.of("a"), search("invoice mar", OWNER));
+        assertTrue(search(".*", OWNER).isEmpty());
+    }
+
+    @Test
+    void testOnlyReturnsDocumentsVisibleToTheUser() {
+        index.index(document("private", "secret plan.doc", null, false));
+        index.index(document("public", "public plan.doc", null, true));
+
+        assertEquals(2, search("plan", OWNER).size());
+        assertEquals(List.of("public"), search("plan", OTHER));
+    }
+
+    @Test
+    void testUpdateReplacesAndDeleteRemoves() {
+        index.index(document("a", "draft.txt", null, false));
+        index.index(document("a", "final.txt", null, false));
+
+        assertTrue(search("draft", OWNER).isEmpty());
+        assertEquals(List.of("a"), search("final", OWNER));
+
+        index.delete("a");
+        assertTrue(search("final", OWNER).isEmpty());
+    }
+
+    @Test
+    void testExtractedTextIsIndexedOffTheCallingThread() throws Exception {
+        Document document = document("a", "scan.pdf", null, false);
+        document.setTextRef("fs:a.txt");
+        index.index(document);
+
+        // The text hasn't been read yet, so nothing is indexed
+        assertTrue(search("scan", OWNER).isEmpty());
+        textReadable.countDown();
+        assertEquals(List.of("a"), awaitSearch("revenue"));
+    }
+
+    @Test
+    void testQueuedTextAnalysisDoesNotOverrideALaterDelete() throws Exception {
+        Document document = document("a", "scan.pdf", null, false);
+        document.setTextRef("fs:a.txt");
+        index.index(document);
+        index.delete("a");
+        index.index(document("b", "revenue.txt", null, false));
+        textReadable.countDown();
+
+        assertEquals(List.of("b"), awaitSearch("revenue"));
+        index.close();
+        index = openIndex();
+        assertEquals(List.of("b"), search("revenue", OWNER));
+    }
+
+    @Test
+    void testCommittedSegmentsSurviveReopenAndMerge() throws Exception {
+        ReflectionTestUtils.setField(index, "maxSegments", 2);
+        for (int i = 0; i < 5; i++) {
+            index.index(document("doc" + i, "contract " + i + ".pdf", null, false));
+            index.commit();
+        }
+        index.delete("doc0");
+        index.commit();
+        ReflectionTestUtils.invokeMethod(index, "mergeIfNeeded");
+        index.close();
+
+        index = openIndex();
+        assertEquals(List.of("doc1", "doc2", "doc3", "doc4"), search("contract", OWNER));
+        assertEquals(List.of("doc3"), search("contract 3", OWNER));
+    }
+
+    @Test
+    void testPagesAreCountedOverAllMatches() {
+        for (int i = 0; i < 25; i++) {
+            index.index(document("doc" + i, "scan.png", null, false));
+        }
+
+        Page<String> page = index.search("scan", OWNER, PageRequest.of(2, 10));
+        assertEquals(25, page.getTotalElements());
+        assertEquals(5, page.getNumberOfElements());
+    }
+
+    @Test
+    void testSearchAfterWalksEveryHitOnceInRankOrder() {
+        for (int i = 0; i < 25; i++) {
+            index.index(document("doc" + i, i % 2 == 0 ? "scan scan.png" : "scan.png", null, false));
+        }
+
+        List<String> ranked = index.search("scan", OWNER, PageRequest.of(0, 50)).getContent();
+        List<String> walked = new ArrayList<>();
+        SearchIndex.Hit after = null;
+        Slice<SearchIndex.Hit> slice;
+        do {
+            slice = index.searchAfter("scan", OWNER, after, 10);
+            slice.getContent().forEach(hit -> walked.add(hit.id()));
+            after = slice.getContent().isEmpty() ? null : slice.getContent().get(slice.getNumberOfElements() - 1);
+        } while (slice.hasNext());
+
+        assertEquals(ranked, walked);
+    }
+
+    private SearchIndex openIndex() throws Exception {
+        SearchIndex searchIndex = new SearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "indexDir", dir.toString());
+        ReflectionTestUtils.setField(searchIndex, "maxBufferedDocs", 10000);
+        ReflectionTestUtils.setField(searchIndex, "maxSegments", 8);
+        ReflectionTestUtils.setField(searchIndex, "indexingThreads", 1);
+        ReflectionTestUtils.setField(searchIndex, "indexingQueueCapacity", 10);
+        ReflectionTestUtils.setField(searchIndex, "contentStorageService", textStore);
+        ReflectionTestUtils.setField(searchIndex, "accessControlCache", new AccessControlCache());
+        searchIndex.open();
+        return searchIndex;
+    }
+
+    private List<String> search(String query, Long userId) {
+        return index.search(query, userId, PageRequest.of(0, 20)).getContent();
+    }
+
+    private List<String> awaitSearch(String query) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> hits = search(query, OWNER);
+        while (hits.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            hits = search(query, OWNER);
+        }
+        return hits;
+    }
+
+    private static Document document(String id, String filename, String description, boolean isPublic) {
+        Document document = new Document(filename, filename, "application/octet-stream", 1L, null, null, OWNER, "owner");
+        document.setId(id);
+        document.setDescription(description);
+        document.setPublic(isPublic);
+        return document;
+    }
+}
@@ -0,0 +1,48 @@
+package com.dms.service.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentTypeSnifferTest {
+
+    @Test
+    void testSniffsKnownMagicBytes() {
+        byte[] pdf = "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("application/pdf", ContentTypeSniffer.sniff(pdf, pdf.length));
+
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0};
+        assertEquals("image/png", ContentTypeSniffer.sniff(png, png.length));
+
+        byte[] text = "hello world\n".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("text/plain", ContentTypeSniffer.sniff(text, text.length));
+
+        assertNull(ContentTypeSniffer.sniff(new byte[]{0, 1, 2, 3}, 4));
+    }
+
+    @Test
+    void testResolvePrefersSniffedTypeForGenericOrMislabeledUploads() {
+        assertEquals("application/pdf", ContentTypeSniffer.resolve("application/octet-stream", "application/pdf"));
+        assertEquals("image/jpeg", ContentTypeSniffer.resolve("image/png", "image/jpeg"));
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                ContentTypeSniffer.resolve("application/vnd.openxmlformats-officedocument.wordprocessingml.document", "application/zip"));
+        assertEquals("application/octet-stream", ContentTypeSniffer.resolve(null, null));
+    }
+
+    @Test
+    void testInspectingStreamComputesChecksumAndEnforcesLimit() throws IOException {
+        byte[] data = "abc".getBytes(StandardCharsets.US_ASCII);
+        ContentInspectingInputStream in = new ContentInspectingInputStream(new ByteArrayInputStream(data), 3);
+        in.readAllBytes();
+        assertEquals(3, in.getCount());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", in.getChecksum());
+
+        InputStream tooLarge = new ContentInspectingInputStream(new ByteArrayInputStream(data), 2);
+        assertThrows(IOException.class, tooLarge::readAllBytes);
+    }
+}
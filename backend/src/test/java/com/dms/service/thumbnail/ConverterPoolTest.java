@@ -0,0 +1,24 @@
+package com.dms.service.thumbnail;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConverterPoolTest {
+
+    @Test
+    void testKeepsPlainNames() {
+        assertEquals("report.docx", ConverterPool.safeFileName("report.docx"));
+    }
+
+    @Test
+    void testReplacesNamesThatCouldLeaveTheWorkDirectory() {
+        for (String name : new String[] {"..", ".", "a/..", "..\\..\\evil.docx", "dir/evil.docx", "C:evil.docx", "", null}) {
+            String safe = ConverterPool.safeFileName(name);
+            assertFalse(safe.contains("/") || safe.contains("\\") || safe.startsWith("."), name + " -> " + safe);
+            assertTrue(safe.matches("[0-9a-f-]{36}\\.[A-Za-z0-9]+"), name + " -> " + safe);
+        }
+        assertTrue(ConverterPool.safeFileName("dir/evil.docx").endsWith(".docx"));
+        assertTrue(ConverterPool.safeFileName("a/..").endsWith(".bin"));
+    }
+}
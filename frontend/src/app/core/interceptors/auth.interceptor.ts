@@ -1,21 +1,42 @@
-import { HttpInterceptorFn } from '@angular/common/http';
+import { HttpErrorResponse, HttpInterceptorFn } from '@angular/common/http';
 import { inject } from '@angular/core';
+import { Router } from '@angular/router';
+import { catchError, switchMap, throwError } from 'rxjs';
 import { AuthService } from '../services/auth.service';
 
 export const authInterceptor: HttpInterceptorFn = (req, next) => {
   const authService = inject(AuthService);
+  const router = inject(Router);
   const token = authService.getToken();
 
   console.log('Auth interceptor - Request URL:', req.url);
   console.log('Auth interceptor - Token:', token ? 'Token exists' : 'No token');
 
-  if (token) {
-    const authReq = req.clone({
-      headers: req.headers.set('Authorization', `Bearer ${token}`)
-    });
-    console.log('Auth interceptor - Authorization header set:', `Bearer ${token.substring(0, 20)}...`);
-    return next(authReq);
+  if (!token || req.headers.has('Authorization')) {
+    return next(req);
   }
 
-  return next(req);
-}; 
\ No newline at end of file
+  const authReq = req.clone({
+    headers: req.headers.set('Authorization', `Bearer ${token}`)
+  });
+  console.log('Auth interceptor - Authorization header set:', `Bearer ${token.substring(0, 20)}...`);
+
+  return next(authReq).pipe(
+    catchError(error => {
+      // Access tokens are short-lived: renew once with the refresh token and retry
+      if (!(error instanceof HttpErrorResponse) || error.status !== 401 || req.url.includes('/auth/')) {
+        return throwError(() => error);
+      }
+      return authService.refresh().pipe(
+        catchError(refreshError => {
+          authService.logout();
+          router.navigate(['/auth/login']);
+          return throwError(() => refreshError);
+        }),
+        switchMap(newToken => next(req.clone({
+          headers: req.headers.set('Authorization', `Bearer ${newToken}`)
+        })))
+      );
+    })
+  );
+};
@@ -1,6 +1,6 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { BehaviorSubject, Observable, tap } from 'rxjs';
+import { BehaviorSubject, Observable, finalize, map, shareReplay, tap, throwError } from 'rxjs';
 import { environment } from '../../../environments/environment';
 
 export interface User {
@@ -14,6 +14,8 @@ export interface User {
 
 export interface AuthResponse {
   token: string;
+  refreshToken: string;
+  expiresIn: number;
   userId: number;
   username: string;
   email: string;
@@ -39,6 +41,8 @@ export interface RegisterRequest {
 export class AuthService {
   private currentUserSubject = new BehaviorSubject<User | null>(null);
   public currentUser$ = this.currentUserSubject.asObservable();
+  // The refresh in flight, shared so that concurrent 401s rotate the refresh token only once
+  private refreshInFlight?: Observable<string>;
 
   constructor(private http: HttpClient) {
     this.loadUserFromStorage();
@@ -65,8 +69,38 @@ export class AuthService {
       );
   }
 
+  /**
+   * Exchanges the stored refresh token for a new access token and emits it. The refresh token
+   * is single-use, so callers arriving while a refresh is running share its result.
+   */
+  refresh(): Observable<string> {
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (!refreshToken) {
+      return throwError(() => new Error('No refresh token'));
+    }
+    if (!this.refreshInFlight) {
+      this.refreshInFlight = this.http.post<AuthResponse>(`${environment.apiUrl}/auth/refresh`, { refreshToken })
+        .pipe(
+          tap(response => this.handleAuthResponse(response)),
+          map(response => response.token),
+          finalize(() => this.refreshInFlight = undefined),
+          shareReplay(1)
+        );
+    }
+    return this.refreshInFlight;
+  }
+
   logout(): void {
+    const token = localStorage.getItem('token');
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (token || refreshToken) {
+      // Revoke both tokens server-side; the local session ends either way
+      this.http.post(`${environment.apiUrl}/auth/logout`, { refreshToken },
+        { headers: token ? { Authorization: `Bearer ${token}` } : {}, responseType: 'text' })
+        .subscribe({ error: () => {} });
+    }
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('currentUser');
     this.currentUserSubject.next(null);
   }
@@ -81,6 +115,19 @@ export class AuthService {
     return token;
   }
 
+  isTokenExpired(): boolean {
+    const token = localStorage.getItem('token');
+    if (!token) {
+      return true;
+    }
+    try {
+      const payload = JSON.parse(atob(token.split('.')[1].replace(/-/g, '+').replace(/_/g, '/')));
+      return payload.exp * 1000 <= Date.now();
+    } catch {
+      return true;
+    }
+  }
+
   getCurrentUser(): User | null {
     return this.currentUserSubject.value;
   }
@@ -88,6 +135,7 @@ export class AuthService {
   private handleAuthResponse(response: AuthResponse): void {
     console.log('Handling auth response:', response);
     localStorage.setItem('token', response.token);
+    localStorage.setItem('refreshToken', response.refreshToken);
     const user: User = {
       id: response.userId,
       username: response.username,
@@ -19,7 +19,10 @@ export interface Document {
   version: number;
   lastModified: string;
   downloadCount: number;
-  thumbnailContent?: string;
+  thumbnailStatus?: 'PENDING' | 'READY' | 'FAILED' | 'NONE';
+  thumbnailUrl?: string;
+  thumbnailVersion?: number;
+  lockVersion?: number;
 }
 
 export interface DocumentUploadRequest {
@@ -35,6 +38,8 @@ export interface DocumentUpdateRequest {
   tags?: string[];
   isPublic?: boolean;
   allowedUsers?: number[];
+  // lockVersion of the copy being edited; the server answers 409 if it changed since
+  expectedVersion?: number;
 }
 
 export interface DocumentStats {
@@ -155,6 +160,10 @@ export class DocumentService {
       request.allowedUsers.forEach(userId => formData.append('allowedUsers', userId.toString()));
     }
 
+    if (request.expectedVersion !== undefined) {
+      formData.append('expectedVersion', request.expectedVersion.toString());
+    }
+
     return this.http.put<Document>(`${environment.apiUrl}/documents/${id}`, formData);
   }
 
@@ -176,6 +185,15 @@ export class DocumentService {
     return parseFloat((bytes / Math.pow(k, i)).toFixed(2)) + ' ' + sizes[i];
   }
 
+  // <img> cannot send the Authorization header, so the server hands out thumbnail URLs signed
+  // for this user and thumbnail version. They don't change when the token does, so the browser
+  // caches each rendition for good.
+  getThumbnailSrc(doc: Document, size: number): string | null {
+    if (!doc.thumbnailUrl) return null;
+    const origin = environment.apiUrl.replace(/\/api$/, '');
+    return `${origin}${doc.thumbnailUrl}&size=${size}`;
+  }
+
   getFileIcon(contentType: string): string {
     if (contentType.includes('pdf')) return 'picture_as_pdf';
     if (contentType.includes('word') || contentType.includes('document')) return 'description';
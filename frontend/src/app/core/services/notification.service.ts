@@ -50,7 +50,14 @@ export class NotificationService {
 
     this.eventSource.onerror = () => {
       this.close();
-      setTimeout(() => this.connect(), 3000);
+      setTimeout(() => {
+        // The stream outlives its access token; renew it before reconnecting
+        if (this.auth.isTokenExpired()) {
+          this.auth.refresh().subscribe({ next: () => this.connect(), error: () => {} });
+        } else {
+          this.connect();
+        }
+      }, 3000);
     };
   }
 
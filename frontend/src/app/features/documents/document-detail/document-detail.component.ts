@@ -69,7 +69,7 @@ export class DocumentDetailComponent implements OnInit {
   saveAccess() {
     const isPublic = this.accessMode === 'everyone';
     const allowedUsers = isPublic ? [] : this.selectedUserIds;
-    this.documents.updateDocument(this.doc.id, { isPublic, allowedUsers }).subscribe(updated => {
+    this.documents.updateDocument(this.doc.id, { isPublic, allowedUsers, expectedVersion: this.doc.lockVersion }).subscribe(updated => {
       this.doc = updated;
       this.accessMode = updated.isPublic ? 'everyone' : 'selected';
       this.selectedUserIds = Array.isArray(updated.allowedUsers) ? [...updated.allowedUsers] : [];
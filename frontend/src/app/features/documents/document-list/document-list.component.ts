@@ -47,7 +47,6 @@ export class DocumentListComponent implements OnInit {
   currentPage = 0;
   pageSize = 10;
   totalElements = 0;
-  previews: Record<string, string> = {};
   viewMode: 'grid' | 'list' = 'grid';
 
   sortOptions = [
@@ -81,16 +80,8 @@ export class DocumentListComponent implements OnInit {
     localStorage.setItem('documentListView', mode);
   }
 
-  private loadPreviews(): void {
-    this.documents.filter(d => this.isImage(d) && !this.previews[d.id]).forEach(d => {
-      this.documentService.getDocumentContent(d.id).subscribe({
-        next: (res) => {
-          const mime = d.contentType || 'image/*';
-          this.previews[d.id] = `data:${mime};base64,${res.content}`;
-        },
-        error: () => {}
-      });
-    });
+  thumbnailSrc(doc: Document): string | null {
+    return this.documentService.getThumbnailSrc(doc, 240);
   }
 
   isImage(doc: Document): boolean {
@@ -132,7 +123,6 @@ export class DocumentListComponent implements OnInit {
           this.documents = response.content;
           console.log(this.documents);
           this.totalElements = response.totalElements;
-          this.loadPreviews();
           this.loading = false;
         },
         error: (error) => {
@@ -43,4 +43,5 @@ export class SharedDocumentsComponent implements OnInit {
 
   open(doc: Document) { /* navigate to document detail */ }
   getIcon(ct: string) { return this.docs.getFileIcon(ct); }
+  thumbnailSrc(doc: Document) { return this.docs.getThumbnailSrc(doc, 240); }
 } 
\ No newline at end of file